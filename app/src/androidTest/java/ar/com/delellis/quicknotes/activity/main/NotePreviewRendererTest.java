@@ -0,0 +1,129 @@
+/*
+ * Nextcloud Quicknotes Android client application.
+ *
+ * @copyright Copyright (c) 2020 Matias De lellis <mati86dl@gmail.com>
+ *
+ * @author Matias De lellis <mati86dl@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package ar.com.delellis.quicknotes.activity.main;
+
+import android.content.Context;
+import android.graphics.Typeface;
+import android.text.Spanned;
+import android.text.style.StrikethroughSpan;
+import android.text.style.StyleSpan;
+import android.text.style.UnderlineSpan;
+import android.view.ContextThemeWrapper;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.wordpress.aztec.AztecText;
+
+import java.util.function.Predicate;
+
+import ar.com.delellis.quicknotes.R;
+import ar.com.delellis.quicknotes.util.HtmlUtil;
+
+import static org.junit.Assert.*;
+
+/**
+ * Check the card previews show the same text and styles the Aztec editor
+ * used to show on the cards.
+ */
+@RunWith(AndroidJUnit4.class)
+public class NotePreviewRendererTest {
+
+    private static final String[] CONTENTS = {
+            "Plain text",
+            "<p>First paragraph</p><p>Second paragraph</p>",
+            "Some <b>bold</b>, <strong>strong</strong>, <i>italic</i> and <em>emphasized</em> words",
+            "<u>underline</u> and <s>strike</s> and <strike>old strike</strike> and <del>deleted</del>",
+            "<b>bold <i>and italic</i></b> text<br>after a break",
+            "<ul><li>first</li><li><b>second</b></li><li>third</li></ul>",
+            "<ol><li>one</li><li>two</li></ol><p>after the list</p>",
+            "<blockquote>A quote with <i>style</i></blockquote>tail",
+            "Entities &amp; &lt;tags&gt; &quot;quoted&quot; &nbsp;spaces",
+            "<p><b>Title</b></p><ul><li>item <u>underlined</u></li></ul><blockquote>quote</blockquote>",
+    };
+
+    @Test
+    public void preview_matchesAztecTextAndStyles() {
+        Context context = new ContextThemeWrapper(InstrumentationRegistry.getInstrumentation().getTargetContext(), R.style.AppTheme);
+        NotePreviewRenderer renderer = new NotePreviewRenderer(0xFF000000);
+
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(() -> {
+            for (String content: CONTENTS) {
+                AztecText aztecText = new AztecText(context);
+                aztecText.setCalypsoMode(false);
+                aztecText.fromHtml(HtmlUtil.cleanHtml(content), true);
+                Spanned aztec = aztecText.getText();
+
+                Spanned preview = (Spanned) renderer.toSpanned(content);
+
+                assertEquals(content, visibleText(aztec, span -> true, false), visibleText(preview, span -> true, false));
+                assertEquals(content, styledText(aztec, Typeface.BOLD), styledText(preview, Typeface.BOLD));
+                assertEquals(content, styledText(aztec, Typeface.ITALIC), styledText(preview, Typeface.ITALIC));
+                assertEquals(content,
+                        visibleText(aztec, span -> span instanceof UnderlineSpan, true),
+                        visibleText(preview, span -> span instanceof UnderlineSpan, true));
+                assertEquals(content,
+                        visibleText(aztec, span -> span instanceof StrikethroughSpan, true),
+                        visibleText(preview, span -> span instanceof StrikethroughSpan, true));
+            }
+        });
+        renderer.shutdown();
+    }
+
+    private static String styledText(Spanned text, int style) {
+        return visibleText(text, span -> span instanceof StyleSpan &&
+                (((StyleSpan) span).getStyle() & style) != 0, true);
+    }
+
+    /**
+     * Characters shown, ignoring whitespace and the markers Aztec inserts,
+     * since both views lay out paragraphs and lists with different spacing.
+     * @param spanned text to read.
+     * @param filter spans that must cover the character.
+     * @param covered true to only take the characters covered by a matching span.
+     * @return the visible characters.
+     */
+    private static String visibleText(Spanned spanned, Predicate<Object> filter, boolean covered) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < spanned.length(); i++) {
+            char c = spanned.charAt(i);
+            if (Character.isWhitespace(c) || c == '\u00A0' || c == '\u200B' || c == '\uFEFF')
+                continue;
+
+            if (covered) {
+                boolean matched = false;
+                for (Object span: spanned.getSpans(i, i + 1, Object.class)) {
+                    if (filter.test(span) && spanned.getSpanStart(span) <= i && spanned.getSpanEnd(span) > i) {
+                        matched = true;
+                        break;
+                    }
+                }
+                if (!matched)
+                    continue;
+            }
+            builder.append(c);
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,234 @@
+/*
+ * Nextcloud Quicknotes Android client application.
+ *
+ * @copyright Copyright (c) 2020 Matias De lellis <mati86dl@gmail.com>
+ *
+ * @author Matias De lellis <mati86dl@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package ar.com.delellis.quicknotes.activity.editor;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import ar.com.delellis.quicknotes.model.Note;
+import ar.com.delellis.quicknotes.util.HashUtil;
+
+/**
+ * Keep the notes being edited on the app storage instead of the saved
+ * instance state, which has a small size limit, so the edition survives
+ * the process being killed and a failed save.
+ *
+ * The files are written and deleted in order on a background thread. Until
+ * then, load() returns what was last saved or deleted, so the drafts can be
+ * used right away from the main thread.
+ */
+public class DraftStore {
+    private static final String TAG = DraftStore.class.getCanonicalName();
+
+    private static final String DRAFTS_DIR = "drafts";
+    private static final String STATE_PREFIX = "state_";
+    private static final String UNSAVED_PREFIX = "unsaved_";
+
+    public static class Draft {
+        // The edited note.
+        public Note note;
+        // The note as it was when the edition started, or null.
+        public Note original;
+    }
+
+    // Shared by all the stores, so the changes of a file are never reordered.
+    private static final ExecutorService executor = Executors.newSingleThreadExecutor();
+    // Changes not written yet. A null draft means it is being deleted.
+    private static final Map<File, Draft> pendingDrafts = new HashMap<>();
+
+    private static final Gson gson = new Gson();
+
+    private final File directory;
+
+    /**
+     * @param context context to get the app storage.
+     * @param account account of the notes, each one has its own drafts.
+     */
+    public DraftStore(@NonNull Context context, @Nullable String account) {
+        // Named by a hash, since account names can have any char.
+        String accountDir = account != null ? Long.toHexString(HashUtil.fnv1a(account)) : "default";
+        directory = new File(new File(context.getFilesDir(), DRAFTS_DIR), accountDir);
+    }
+
+    /**
+     * Store a copy of the notes, and write it to the storage in background.
+     * @param name name of the draft.
+     * @param note note being edited.
+     * @param original note before the edition, or null.
+     */
+    public void save(@NonNull String name, @NonNull Note note, @Nullable Note original) {
+        Draft draft = new Draft();
+        // Copy them, since the editor keeps changing the note meanwhile.
+        draft.note = note.clone();
+        draft.original = original != null ? original.clone() : null;
+
+        File file = getFile(name);
+        synchronized (pendingDrafts) {
+            pendingDrafts.put(file, draft);
+        }
+        executor.execute(() -> {
+            write(file, draft);
+            synchronized (pendingDrafts) {
+                if (pendingDrafts.get(file) == draft)
+                    pendingDrafts.remove(file);
+            }
+        });
+    }
+
+    /**
+     * @param name name of the draft.
+     * @return the stored draft, or null if there is none.
+     */
+    @Nullable
+    public Draft load(@NonNull String name) {
+        File file = getFile(name);
+        synchronized (pendingDrafts) {
+            if (pendingDrafts.containsKey(file))
+                return pendingDrafts.get(file);
+        }
+        if (!file.exists())
+            return null;
+
+        try (Reader reader = new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8)) {
+            Draft draft = gson.fromJson(reader, Draft.class);
+            return draft != null && draft.note != null ? draft : null;
+        } catch (IOException | JsonParseException e) {
+            Log.w(TAG, "Can't read the draft " + name, e);
+            return null;
+        }
+    }
+
+    public void delete(@NonNull String name) {
+        File file = getFile(name);
+        synchronized (pendingDrafts) {
+            pendingDrafts.put(file, null);
+        }
+        executor.execute(() -> {
+            file.delete();
+            synchronized (pendingDrafts) {
+                if (pendingDrafts.containsKey(file) && pendingDrafts.get(file) == null)
+                    pendingDrafts.remove(file);
+            }
+        });
+    }
+
+    /**
+     * Delete the drafts of the editors state, e.g. when switching account. The
+     * drafts of unsaved changes are kept, to offer them when coming back.
+     */
+    public void deleteStateDrafts() {
+        synchronized (pendingDrafts) {
+            for (Map.Entry<File, Draft> entry: pendingDrafts.entrySet()) {
+                if (isStateDraft(entry.getKey()))
+                    entry.setValue(null);
+            }
+        }
+        executor.execute(() -> {
+            File[] files = directory.listFiles();
+            if (files != null) {
+                for (File file: files) {
+                    if (isStateDraft(file))
+                        file.delete();
+                }
+            }
+            synchronized (pendingDrafts) {
+                pendingDrafts.entrySet().removeIf(entry -> isStateDraft(entry.getKey()) && entry.getValue() == null);
+            }
+        });
+    }
+
+    private boolean isStateDraft(File file) {
+        return directory.equals(file.getParentFile()) && file.getName().startsWith(STATE_PREFIX);
+    }
+
+    /**
+     * Wait until the pending changes are written.
+     */
+    @VisibleForTesting
+    static void awaitPendingWrites() throws InterruptedException, ExecutionException {
+        executor.submit(() -> { }).get();
+    }
+
+    private void write(File file, Draft draft) {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            Log.w(TAG, "Can't create " + directory);
+            return;
+        }
+
+        // Write a temporary file first, so an old draft is not lost if this fails.
+        File tempFile = new File(file.getPath() + ".tmp");
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(tempFile), StandardCharsets.UTF_8)) {
+            gson.toJson(draft, writer);
+        } catch (IOException e) {
+            Log.w(TAG, "Can't save the draft " + file.getName(), e);
+            tempFile.delete();
+            return;
+        }
+        if (!tempFile.renameTo(file)) {
+            Log.w(TAG, "Can't save the draft " + file.getName());
+        }
+    }
+
+    /**
+     * @param noteId id of the note.
+     * @return name of the draft kept when the changes of the note could not be saved.
+     */
+    @NonNull
+    public static String getUnsavedName(int noteId) {
+        return UNSAVED_PREFIX + noteId;
+    }
+
+    /**
+     * @param noteId id of the note.
+     * @return name of the draft with the state of the editor of the note.
+     */
+    @NonNull
+    public static String getStateName(int noteId) {
+        return STATE_PREFIX + noteId;
+    }
+
+    private File getFile(String name) {
+        return new File(directory, name + ".json");
+    }
+}
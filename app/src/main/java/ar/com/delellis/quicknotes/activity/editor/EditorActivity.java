@@ -33,16 +33,18 @@ import static ar.com.delellis.quicknotes.activity.editor.AttachBottomSheetDialog
 import android.app.ProgressDialog;
 import android.content.ContentResolver;
 import android.content.Intent;
-import android.graphics.Color;
 import android.graphics.drawable.ColorDrawable;
 import android.graphics.drawable.Drawable;
 import android.net.Uri;
 import android.os.Bundle;
+import android.os.SystemClock;
 import android.provider.MediaStore;
+import android.util.Log;
 import android.view.Menu;
 import android.view.MenuInflater;
 import android.view.MenuItem;
 import android.view.View;
+import android.view.ViewTreeObserver;
 import android.view.WindowManager;
 import android.widget.EditText;
 import android.widget.HorizontalScrollView;
@@ -66,7 +68,6 @@ import org.wordpress.aztec.AztecTextFormat;
 
 import java.io.File;
 import java.io.IOException;
-import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -79,6 +80,7 @@ import ar.com.delellis.quicknotes.activity.tags.TagsActivity;
 import ar.com.delellis.quicknotes.api.ApiProvider;
 import ar.com.delellis.quicknotes.model.Attachment;
 import ar.com.delellis.quicknotes.model.Note;
+import ar.com.delellis.quicknotes.model.NoteRepository;
 import ar.com.delellis.quicknotes.model.Tag;
 import ar.com.delellis.quicknotes.shared.AttachmentAdapter;
 import ar.com.delellis.quicknotes.shared.ShareAdapter;
@@ -94,6 +96,15 @@ import petrov.kristiyan.colorpicker.ColorPicker;
 public class EditorActivity extends AppCompatActivity implements EditorView, OnAttachOptionListener {
     private final String TAG = EditorActivity.class.getCanonicalName();
 
+    public static final String EXTRA_NOTE_ID = "noteId";
+
+    private static final String STATE_NOTE = "note";
+    private static final String STATE_ORIGINAL_NOTE = "originalNote";
+    private static final String STATE_NOTE_ID = "noteId";
+
+    // Notes longer than this, in chars, are saved as a draft instead of on the bundle.
+    private static final int MAX_STATE_NOTE_LENGTH = 16 * 1024;
+
     private static final int REQUEST_CODE_EDIT_TAGS = 100;
     private static final int REQUEST_CODE_ADD_FILE = 101;
     private static final int REQUEST_CODE_IMAGE_CAPTURE = 102;
@@ -106,6 +117,10 @@ public class EditorActivity extends AppCompatActivity implements EditorView, OnA
     private static final String KEY_ACTION_VIEW_FILE_ID = "KEY_FILE_ID";
     private static final String KEY_ACTION_VIEW_ACCOUNT = "KEY_ACCOUNT";
 
+    // Notes larger than this are rendered in two steps, showing the beginning first.
+    private static final int LARGE_NOTE_THRESHOLD = 32 * 1024;
+    private static final int LARGE_NOTE_FIRST_CHUNK = 4 * 1024;
+
     EditorPresenter presenter;
     ProgressDialog progressDialog;
 
@@ -116,6 +131,7 @@ public class EditorActivity extends AppCompatActivity implements EditorView, OnA
 
     EditText et_title;
     AztecText et_content;
+    EditorContentTracker contentTracker;
 
     TagAdapter tagAdapter;
     RecyclerView tagRecyclerView;
@@ -128,7 +144,12 @@ public class EditorActivity extends AppCompatActivity implements EditorView, OnA
     Note note = new Note();
     Note shadowCopyNote;
 
-    private List<Tag> tags = new ArrayList<>();
+    DraftStore draftStore;
+
+    // True while a large note is not fully rendered.
+    private boolean contentLoading = false;
+    private long createTime;
+
     private List<Tag> tagSelection = new ArrayList<>();
 
     // Temporary files to capture from the camera
@@ -138,6 +159,7 @@ public class EditorActivity extends AppCompatActivity implements EditorView, OnA
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
+        createTime = SystemClock.elapsedRealtime();
         setContentView(R.layout.activity_editor);
 
         ActionBar actionBar = getSupportActionBar();
@@ -156,7 +178,7 @@ public class EditorActivity extends AppCompatActivity implements EditorView, OnA
 
         getWindow().addFlags(WindowManager.LayoutParams.FLAG_DRAWS_SYSTEM_BAR_BACKGROUNDS);
 
-        mApi = new ApiProvider(getApplicationContext());
+        mApi = ApiProvider.getInstance(getApplicationContext());
 
         attachmentAdapter = new AttachmentAdapter();
         attachmentRecyclerView = findViewById(R.id.editor_recyclerAttachments);
@@ -177,6 +199,7 @@ public class EditorActivity extends AppCompatActivity implements EditorView, OnA
         et_title = findViewById(R.id.editor_title);
         et_content = findViewById(R.id.editor_content);
         et_content.setCalypsoMode(false);
+        contentTracker = new EditorContentTracker(et_content);
         rich_toolbar = findViewById(R.id.editor_rich_toolbar);
 
         tagAdapter = new TagAdapter();
@@ -193,21 +216,84 @@ public class EditorActivity extends AppCompatActivity implements EditorView, OnA
 
         presenter = new EditorPresenter(this);
 
+        draftStore = new DraftStore(this, ApiProvider.getUsername());
+
+        NoteRepository repository = NoteRepository.getInstance();
         Intent intent = getIntent();
-        if (intent.hasExtra("note")) {
-            note = (Note) Objects.requireNonNull(intent.getSerializableExtra("note"));
+        DraftStore.Draft draft = null;
+        // Restore the edition, which could be lost on the repository if the process was killed.
+        if (savedInstanceState != null && savedInstanceState.containsKey(STATE_NOTE)) {
+            draft = new DraftStore.Draft();
+            draft.note = savedInstanceState.getParcelable(STATE_NOTE);
+            draft.original = savedInstanceState.getParcelable(STATE_ORIGINAL_NOTE);
+        } else if (savedInstanceState != null && savedInstanceState.containsKey(STATE_NOTE_ID)) {
+            draft = draftStore.load(DraftStore.getStateName(savedInstanceState.getInt(STATE_NOTE_ID)));
         }
 
-        tags = (List<Tag>) Objects.requireNonNull(intent.getSerializableExtra("tags"));
+        if (draft != null) {
+            note = draft.note;
+            shadowCopyNote = draft.original;
+        } else if (intent.hasExtra(EXTRA_NOTE_ID)) {
+            Note storedNote = repository.getNote(intent.getIntExtra(EXTRA_NOTE_ID, 0));
+            if (storedNote == null) {
+                finish();
+                return;
+            }
+            // Edit a copy, so the list is not changed until saved.
+            note = storedNote.clone();
+
+            DraftStore.Draft unsaved = draftStore.load(DraftStore.getUnsavedName(note.getId()));
+            if (unsaved != null) {
+                // Offer again the changes the server rejected, as modifications of the current note.
+                shadowCopyNote = note;
+                note = unsaved.note;
+                Toast.makeText(this, R.string.unsaved_changes_restored, Toast.LENGTH_LONG).show();
+            }
+        }
 
-        setDataFromIntentExtra();
+        setDataFromIntentExtra(draft != null);
 
         // Store the either loaded or just created note as a copy so we can compare for modifications later
-        shadowCopyNote = note.clone();
+        if (shadowCopyNote == null) {
+            shadowCopyNote = note.clone();
+        }
         getSupportActionBar().setElevation(0);
     }
 
 
+    @Override
+    protected void onSaveInstanceState(@NonNull Bundle outState) {
+        super.onSaveInstanceState(outState);
+
+        if (!note.getIsShared()) {
+            fetchDataToNoteObject();
+        }
+        if (getLength(note) + getLength(shadowCopyNote) <= MAX_STATE_NOTE_LENGTH) {
+            outState.putParcelable(STATE_NOTE, note);
+            outState.putParcelable(STATE_ORIGINAL_NOTE, shadowCopyNote);
+        } else {
+            // Just the id on the bundle, the note is too large for it.
+            draftStore.save(DraftStore.getStateName(note.getId()), note, shadowCopyNote);
+            outState.putInt(STATE_NOTE_ID, note.getId());
+        }
+    }
+
+    private static int getLength(Note note) {
+        if (note == null)
+            return 0;
+        String title = note.getTitle();
+        String content = note.getContent();
+        return (title != null ? title.length() : 0) + (content != null ? content.length() : 0);
+    }
+
+    @Override
+    protected void onDestroy() {
+        if (isFinishing() && draftStore != null) {
+            draftStore.delete(DraftStore.getStateName(note.getId()));
+        }
+        super.onDestroy();
+    }
+
     @Override
     public boolean onCreateOptionsMenu(Menu menu) {
         int tintColor = this.getResources().getColor(R.color.defaultNoteTint);
@@ -285,30 +371,32 @@ public class EditorActivity extends AppCompatActivity implements EditorView, OnA
     private void fetchDataToNoteObject() {
         // Clean html from view and update note to save.
         note.setTitle(HtmlUtil.cleanString(et_title.getText().toString()));
-        note.setContent(HtmlUtil.cleanHtml(et_content.toPlainHtml(false)));
+        if (!contentLoading) {
+            note.setContent(contentTracker.getCleanHtml());
+        }
     }
 
     public void initToolbar() {
         ImageButton button = findViewById(R.id.action_bold);
-        button.setOnClickListener(view -> et_content.toggleFormatting(AztecTextFormat.FORMAT_BOLD));
+        button.setOnClickListener(view -> toggleFormatting(AztecTextFormat.FORMAT_BOLD));
 
         button = findViewById(R.id.action_italic);
-        button.setOnClickListener(view -> et_content.toggleFormatting(AztecTextFormat.FORMAT_ITALIC));
+        button.setOnClickListener(view -> toggleFormatting(AztecTextFormat.FORMAT_ITALIC));
 
         button = findViewById(R.id.action_underline);
-        button.setOnClickListener(view -> et_content.toggleFormatting(AztecTextFormat.FORMAT_UNDERLINE));
+        button.setOnClickListener(view -> toggleFormatting(AztecTextFormat.FORMAT_UNDERLINE));
 
         button = findViewById(R.id.action_strike);
-        button.setOnClickListener(view -> et_content.toggleFormatting(AztecTextFormat.FORMAT_STRIKETHROUGH));
+        button.setOnClickListener(view -> toggleFormatting(AztecTextFormat.FORMAT_STRIKETHROUGH));
 
         button = findViewById(R.id.action_quote);
-        button.setOnClickListener(view -> et_content.toggleFormatting(AztecTextFormat.FORMAT_QUOTE));
+        button.setOnClickListener(view -> toggleFormatting(AztecTextFormat.FORMAT_QUOTE));
 
         button = findViewById(R.id.action_numbered_list);
-        button.setOnClickListener(view -> et_content.toggleFormatting(AztecTextFormat.FORMAT_ORDERED_LIST));
+        button.setOnClickListener(view -> toggleFormatting(AztecTextFormat.FORMAT_ORDERED_LIST));
 
         button = findViewById(R.id.action_bulleted_list);
-        button.setOnClickListener(view -> et_content.toggleFormatting(AztecTextFormat.FORMAT_UNORDERED_LIST));
+        button.setOnClickListener(view -> toggleFormatting(AztecTextFormat.FORMAT_UNORDERED_LIST));
 
         button = findViewById(R.id.action_note_color);
         button.setOnClickListener(view -> showColorPicker());
@@ -320,6 +408,11 @@ public class EditorActivity extends AppCompatActivity implements EditorView, OnA
         button.setOnClickListener(view -> showTagsSelection());
     }
 
+    private void toggleFormatting(AztecTextFormat format) {
+        et_content.toggleFormatting(format);
+        contentTracker.markDirty();
+    }
+
     @Override
     public void showProgress() {
         progressDialog.show();
@@ -380,8 +473,7 @@ public class EditorActivity extends AppCompatActivity implements EditorView, OnA
 
     private void showTagsSelection() {
         Intent intent = new Intent(this, TagsActivity.class);
-        intent.putExtra("tags", (Serializable) tags);
-        intent.putExtra("tagSelection", (Serializable) tagSelection);
+        intent.putParcelableArrayListExtra(TagsActivity.EXTRA_TAG_SELECTION, new ArrayList<>(tagSelection));
         startActivityForResult(intent, REQUEST_CODE_EDIT_TAGS);
     }
 
@@ -392,7 +484,7 @@ public class EditorActivity extends AppCompatActivity implements EditorView, OnA
         ColorPicker colorPicker = new ColorPicker(this);
         colorPicker.setColors(palette_colors);
         colorPicker.setTitle(getString(R.string.select_note_color));
-        colorPicker.setDefaultColorButton(Color.parseColor(note.getColor()));
+        colorPicker.setDefaultColorButton(ColorUtil.parseColor(note.getColor()));
         colorPicker.setRoundColorButton(true);
         colorPicker.disableDefaultButtons(true);
         colorPicker.setOnFastChooseColorListener(new ColorPicker.OnFastChooseColorListener() {
@@ -495,18 +587,21 @@ public class EditorActivity extends AppCompatActivity implements EditorView, OnA
         }
     }
 
-    private void setDataFromIntentExtra() {
+    /**
+     * @param restored true if the note was restored after the activity was recreated.
+     */
+    private void setDataFromIntentExtra(boolean restored) {
         if (note.getId() != 0) {
             attachmentAdapter.setItems(note.getAttachtments());
             attachmentAdapter.setDisableDeletion(note.getIsShared());
             attachmentAdapter.notifyDataSetChanged();
             attachmentRecyclerView.setAdapter(attachmentAdapter);
-            note.setTitle(HtmlUtil.cleanString(note.getTitle()));
+            note.setTitle(note.getCleanTitle());
             et_title.setText(note.getTitle());
-            note.setContent(HtmlUtil.cleanHtml(note.getContent()));
-            et_content.fromHtml(note.getContent(), true);
+            note.setContent(note.getCleanContent());
+            loadContent(note.getContent());
 
-            tintActivityColor(Color.parseColor(note.getColor()));
+            tintActivityColor(ColorUtil.parseColor(note.getColor()));
 
             tagSelection = note.getTags();
 
@@ -523,6 +618,21 @@ public class EditorActivity extends AppCompatActivity implements EditorView, OnA
             } else {
                 editMode();
             }
+        } else if (restored) {
+            // Keep what was written on the new note.
+            et_title.setText(note.getTitle());
+            loadContent(note.getContent());
+            tintActivityColor(ColorUtil.parseColor(note.getColor()));
+
+            if (note.getTags() != null) {
+                tagSelection = note.getTags();
+                tagAdapter.setItems(tagSelection);
+            }
+
+            editMode();
+
+            shareRecyclerView.setAdapter(shareAdapter);
+            tagRecyclerView.setAdapter(tagAdapter);
         } else {
             // Default color.
             int defaultColor = getResources().getColor(R.color.defaultNoteColor);
@@ -542,10 +652,65 @@ public class EditorActivity extends AppCompatActivity implements EditorView, OnA
         }
     }
 
+    /**
+     * Render the note content. Large notes show the first blocks right away, and
+     * the whole note on the next frame.
+     *
+     * This only brings the first paint forward. AztecText can just render a
+     * whole document on the main thread, so rendering the rest still blocks that
+     * next frame as long as rendering the full note did before.
+     * @param content clean html
+     */
+    private void loadContent(String content) {
+        List<String> blocks = content.length() > LARGE_NOTE_THRESHOLD ? HtmlUtil.splitBlocks(content) : null;
+
+        StringBuilder firstChunk = new StringBuilder();
+        if (blocks != null) {
+            for (String block: blocks) {
+                firstChunk.append(block);
+                if (firstChunk.length() >= LARGE_NOTE_FIRST_CHUNK)
+                    break;
+            }
+        }
+
+        // A single huge block, or a first chunk with the whole note, is rendered just once.
+        if (blocks == null || firstChunk.length() >= content.length()) {
+            et_content.fromHtml(content, true);
+            Log.d(TAG, "Note rendered in " + (SystemClock.elapsedRealtime() - createTime) + "ms");
+            return;
+        }
+
+        contentLoading = true;
+        et_content.fromHtml(firstChunk.toString(), true);
+        Log.d(TAG, "Large note first chunk rendered in " + (SystemClock.elapsedRealtime() - createTime) + "ms");
+
+        // Wait the first chunk is drawn before render the whole note. This
+        // render is as slow as ever, the editor is just frozen after the first
+        // blocks are on screen instead of before.
+        et_content.getViewTreeObserver().addOnPreDrawListener(new ViewTreeObserver.OnPreDrawListener() {
+            @Override
+            public boolean onPreDraw() {
+                et_content.getViewTreeObserver().removeOnPreDrawListener(this);
+                et_content.post(() -> {
+                    if (isFinishing())
+                        return;
+                    et_content.fromHtml(content, true);
+                    contentLoading = false;
+                    if (!note.getIsShared()) {
+                        editMode();
+                    }
+                    Log.d(TAG, "Large note interactive in " + (SystemClock.elapsedRealtime() - createTime) + "ms");
+                });
+                return true;
+            }
+        });
+    }
+
     private void editMode() {
         et_title.setFocusableInTouchMode(true);
-        et_content.setFocusableInTouchMode(true);
-        rich_toolbar.setVisibility(View.VISIBLE);
+        // Don't allow to edit a partially rendered note.
+        et_content.setFocusableInTouchMode(!contentLoading);
+        rich_toolbar.setVisibility(contentLoading ? View.GONE : View.VISIBLE);
     }
 
     private void readMode() {
@@ -572,7 +737,7 @@ public class EditorActivity extends AppCompatActivity implements EditorView, OnA
         switch (requestCode) {
             case REQUEST_CODE_EDIT_TAGS:
                 if (resultCode == RESULT_OK) {
-                    tagSelection = (List<Tag>) Objects.requireNonNull(data.getSerializableExtra("tagSelection"));
+                    tagSelection = Objects.requireNonNull(data.getParcelableArrayListExtra(TagsActivity.EXTRA_TAG_SELECTION));
                     note.setTags(tagSelection);
                     tagAdapter.setItems(tagSelection);
                     tagAdapter.notifyDataSetChanged();
@@ -650,6 +815,7 @@ public class EditorActivity extends AppCompatActivity implements EditorView, OnA
                 .setIcon(android.R.drawable.ic_dialog_alert)
                 .setMessage(R.string.note_confirm_discard_unsaved_changes_text)
                 .setPositiveButton(R.string.common_yes, ((dialog, which) -> {
+                    draftStore.delete(DraftStore.getUnsavedName(note.getId()));
                     discardAction.run();
                 }))
                 .setNegativeButton(R.string.common_cancel, (dialog, which) -> {
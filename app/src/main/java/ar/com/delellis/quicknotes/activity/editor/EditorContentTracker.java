@@ -0,0 +1,84 @@
+/*
+ * Nextcloud Quicknotes Android client application.
+ *
+ * @copyright Copyright (c) 2020 Matias De lellis <mati86dl@gmail.com>
+ *
+ * @author Matias De lellis <mati86dl@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package ar.com.delellis.quicknotes.activity.editor;
+
+import android.text.Editable;
+import android.text.TextWatcher;
+
+import androidx.annotation.NonNull;
+
+import org.wordpress.aztec.AztecText;
+
+import ar.com.delellis.quicknotes.util.HtmlUtil;
+
+/**
+ * Keep the clean html of the editor content, serializing and sanitizing it
+ * again only after the content was modified, and then only cleaning the
+ * blocks that really changed.
+ */
+class EditorContentTracker implements TextWatcher {
+
+    @NonNull
+    private final AztecText editor;
+
+    private boolean dirty = true;
+    private String cleanHtml = "";
+
+    EditorContentTracker(@NonNull AztecText editor) {
+        this.editor = editor;
+        editor.addTextChangedListener(this);
+    }
+
+    /**
+     * Formatting changes don't change the text, so they must be notified.
+     */
+    void markDirty() {
+        dirty = true;
+    }
+
+    /**
+     * @return clean html of the editor content.
+     */
+    @NonNull
+    String getCleanHtml() {
+        if (dirty) {
+            cleanHtml = HtmlUtil.cleanHtmlByBlocks(editor.toPlainHtml(false));
+            dirty = false;
+        }
+        return cleanHtml;
+    }
+
+    @Override
+    public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+        // Ignore.
+    }
+
+    @Override
+    public void onTextChanged(CharSequence s, int start, int before, int count) {
+        dirty = true;
+    }
+
+    @Override
+    public void afterTextChanged(Editable s) {
+        // Ignore.
+    }
+}
@@ -22,6 +22,9 @@
 package ar.com.delellis.quicknotes.activity.editor;
 
 import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.widget.Toast;
 
 import androidx.annotation.NonNull;
 import androidx.appcompat.app.AppCompatActivity;
@@ -30,8 +33,12 @@ import org.jetbrains.annotations.NotNull;
 
 import ar.com.delellis.quicknotes.R;
 import ar.com.delellis.quicknotes.api.ApiProvider;
+import ar.com.delellis.quicknotes.api.helper.RequestScheduler.Priority;
+import ar.com.delellis.quicknotes.api.helper.ResilientCall;
+import ar.com.delellis.quicknotes.api.helper.RetryPolicy;
 import ar.com.delellis.quicknotes.model.Attachment;
 import ar.com.delellis.quicknotes.model.Note;
+import ar.com.delellis.quicknotes.model.NoteRepository;
 import okhttp3.MultipartBody;
 import retrofit2.Call;
 import retrofit2.Callback;
@@ -41,21 +48,29 @@ public class EditorPresenter {
 
     private EditorView view;
 
+    // Outlives the view, to report errors of requests finished after closing it.
+    private final Context context;
+    private final NoteRepository repository = NoteRepository.getInstance();
+    private final DraftStore draftStore;
+
     public EditorPresenter(EditorView view) {
         this.view = view;
+        this.context = ((AppCompatActivity) view).getApplicationContext();
+        // Bound to the account now, so late responses keep their drafts apart.
+        this.draftStore = new DraftStore(context, ApiProvider.getUsername());
     }
 
     void createNote(Note note) {
         view.showProgress();
 
         Call<Note> call = ApiProvider.getQuicknotesAPI().create(note);
-        call.enqueue(new Callback<Note>() {
+        ResilientCall.enqueue(call, RetryPolicy.NOT_IDEMPOTENT, Priority.INTERACTIVE, new Callback<Note>() {
             @Override
             public void onResponse(@NotNull Call<Note> call, @NotNull Response<Note> response) {
                 ((AppCompatActivity) view).runOnUiThread(() -> {
                     view.hideProgress();
-                    Context context = ((AppCompatActivity) view).getApplicationContext();
                     if (response.isSuccessful() && response.body() != null) {
+                        repository.putNote(response.body());
                         view.onRequestSuccess(context.getString(R.string.note_saved, response.body().getTitle()));
                     } else {
                         view.onRequestError(context.getString(R.string.error_saving_note));
@@ -73,63 +88,85 @@ public class EditorPresenter {
         });
     }
 
+    /**
+     * Apply the changes to the local notes and close the editor right away.
+     * If the server fails to save it, the previous note is restored and the
+     * changes are kept as a draft, offered the next time the note is opened.
+     * @param note edited note.
+     */
     void updateNote(Note note) {
-        view.showProgress();
+        Note saved = note.clone();
+        Note previous = repository.putLocalNote(saved);
+        view.onRequestSuccess(context.getString(R.string.note_saved, note.getTitle()));
 
         Call<Note> call = ApiProvider.getQuicknotesAPI().updateNote(note.getId(), note);
-        call.enqueue(new Callback<Note>() {
+        ResilientCall.enqueue(call, RetryPolicy.IDEMPOTENT, Priority.INTERACTIVE, new Callback<Note>() {
             @Override
             public void onResponse(@NonNull Call<Note> call, @NonNull Response<Note> response) {
-                ((AppCompatActivity) view).runOnUiThread(() -> {
-                    view.hideProgress();
-                    Context context = ((AppCompatActivity) view).getApplicationContext();
-                    if (response.isSuccessful() && response.body() != null) {
-                        view.onRequestSuccess(context.getString(R.string.note_saved, response.body().getTitle()));
-                    } else {
-                        view.onRequestError(context.getString(R.string.error_saving_note));
-                    }
-                });
+                if (response.isSuccessful() && response.body() != null) {
+                    // Keep the server version, e.g. with its new timestamp.
+                    repository.confirmNote(saved, response.body());
+                    draftStore.delete(DraftStore.getUnsavedName(saved.getId()));
+                } else {
+                    rollback(saved, previous);
+                }
             }
 
             @Override
             public void onFailure(@NonNull Call<Note> call, @NonNull Throwable t) {
-                ((AppCompatActivity) view).runOnUiThread(() -> {
-                    view.hideProgress();
-                    view.onRequestError(t.getLocalizedMessage());
-                });
+                rollback(saved, previous);
             }
         });
-
     }
 
+    /**
+     * Remove the note from the local notes and close the editor right away,
+     * restoring it if the server fails to delete it.
+     * @param id id of the note.
+     */
     void deleteNote(int id) {
-        view.showProgress();
+        Note previous = repository.removeLocalNote(id);
+        view.onRequestSuccess(context.getString(R.string.note_deleted));
 
         Call<Note> call = ApiProvider.getQuicknotesAPI().deleteNote(id);
-        call.enqueue(new Callback<Note>() {
+        ResilientCall.enqueue(call, RetryPolicy.IDEMPOTENT, Priority.INTERACTIVE, new Callback<Note>() {
             @Override
             public void onResponse(@NonNull Call<Note> call, @NonNull Response<Note> response) {
-                ((AppCompatActivity) view).runOnUiThread(() -> {
-                    view.hideProgress();
-                    Context context = ((AppCompatActivity) view).getApplicationContext();
-                    view.onRequestSuccess(context.getString(R.string.note_deleted));
-                });
+                if (response.isSuccessful()) {
+                    repository.confirmRemoval(id);
+                    draftStore.delete(DraftStore.getUnsavedName(id));
+                } else {
+                    restore(id, previous, R.string.error_deleting_note);
+                }
             }
             @Override
             public void onFailure(@NonNull Call<Note> call, @NonNull Throwable t) {
-                ((AppCompatActivity) view).runOnUiThread(() -> {
-                    view.hideProgress();
-                    view.onRequestError(t.getLocalizedMessage());
-                });
+                restore(id, previous, R.string.error_deleting_note);
             }
         });
     }
 
+    private void rollback(Note saved, Note previous) {
+        repository.revertNote(saved, previous);
+        draftStore.save(DraftStore.getUnsavedName(saved.getId()), saved, previous);
+        showError(R.string.error_saving_note_draft_kept);
+    }
+
+    private void restore(int id, Note previous, int messageId) {
+        repository.revertRemoval(id, previous);
+        showError(messageId);
+    }
+
+    private void showError(int messageId) {
+        new Handler(Looper.getMainLooper()).post(() ->
+                Toast.makeText(context, messageId, Toast.LENGTH_LONG).show());
+    }
+
     void uploadAttachment(MultipartBody.Part filePart) {
         view.showProgress();
 
         Call<Attachment> call = ApiProvider.getQuicknotesAPI().uploadAttachment(filePart);
-        call.enqueue(new Callback<Attachment>() {
+        ResilientCall.enqueue(call, RetryPolicy.NOT_IDEMPOTENT, Priority.VISIBLE, new Callback<Attachment>() {
             @Override
             public void onResponse(@NotNull Call<Attachment> call, @NotNull Response<Attachment> response) {
                 ((AppCompatActivity) view).runOnUiThread(() -> {
@@ -0,0 +1,200 @@
+/*
+ * Nextcloud Quicknotes Android client application.
+ *
+ * @copyright Copyright (c) 2020 Matias De lellis <mati86dl@gmail.com>
+ *
+ * @author Matias De lellis <mati86dl@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package ar.com.delellis.quicknotes.activity.main;
+
+import android.graphics.drawable.Drawable;
+import android.view.View;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.RecyclerView;
+import androidx.recyclerview.widget.StaggeredGridLayoutManager;
+
+import com.bumptech.glide.load.DataSource;
+import com.bumptech.glide.load.engine.GlideException;
+import com.bumptech.glide.request.RequestListener;
+import com.bumptech.glide.request.target.Target;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import ar.com.delellis.quicknotes.R;
+import ar.com.delellis.quicknotes.model.Attachment;
+import ar.com.delellis.quicknotes.model.Note;
+import ar.com.delellis.quicknotes.shared.AttachmentAdapter;
+
+/**
+ * Warm the Glide memory cache with the thumbnails of the next cards in
+ * the scroll direction, so they are ready when the cards become visible.
+ */
+public class AttachmentPreloader extends RecyclerView.OnScrollListener {
+
+    // Remember a few preloaded urls to avoid ask to glide again and again.
+    private static final int MAX_REMEMBERED_URLS = 100;
+
+    @NonNull
+    private final RecyclerView recyclerView;
+
+    @NonNull
+    private final NoteAdapter noteAdapter;
+
+    private final int preloadCount;
+    private final int maxConcurrentLoads;
+
+    private final Deque<Attachment> pending = new ArrayDeque<>();
+    private final Set<String> preloaded = new LinkedHashSet<>();
+    private final Set<String> loading = new HashSet<>();
+
+    private int thumbnailSize = 0;
+    private int[] positions;
+
+    public AttachmentPreloader(@NonNull RecyclerView recyclerView, @NonNull NoteAdapter noteAdapter, int preloadCount, int maxConcurrentLoads) {
+        this.recyclerView = recyclerView;
+        this.noteAdapter = noteAdapter;
+        this.preloadCount = preloadCount;
+        this.maxConcurrentLoads = maxConcurrentLoads;
+    }
+
+    @Override
+    public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+        if (dy == 0 || !(recyclerView.getLayoutManager() instanceof StaggeredGridLayoutManager))
+            return;
+
+        updateThumbnailSize();
+        if (thumbnailSize <= 0)
+            return;
+
+        StaggeredGridLayoutManager layoutManager = (StaggeredGridLayoutManager) recyclerView.getLayoutManager();
+        if (positions == null || positions.length != layoutManager.getSpanCount()) {
+            positions = new int[layoutManager.getSpanCount()];
+        }
+
+        // Forget what was queued for the other direction.
+        pending.clear();
+
+        if (dy > 0) {
+            int last = max(layoutManager.findLastVisibleItemPositions(positions));
+            for (int position = last + 1; position <= last + preloadCount && position < noteAdapter.getItemCount(); position++) {
+                enqueue(noteAdapter.get(position));
+            }
+        } else {
+            int first = min(layoutManager.findFirstVisibleItemPositions(positions));
+            for (int position = first - 1; position >= first - preloadCount && position >= 0; position--) {
+                enqueue(noteAdapter.get(position));
+            }
+        }
+
+        startPendingLoads();
+    }
+
+    private void enqueue(Note note) {
+        for (Attachment attachment: note.getAttachtments()) {
+            String url = attachment.getPreviewUrl();
+            if (!preloaded.contains(url) && !loading.contains(url)) {
+                pending.add(attachment);
+            }
+        }
+    }
+
+    private void startPendingLoads() {
+        while (loading.size() < maxConcurrentLoads && !pending.isEmpty()) {
+            Attachment attachment = pending.poll();
+            String url = attachment.getPreviewUrl();
+            if (preloaded.contains(url) || !loading.add(url))
+                continue;
+
+            AttachmentAdapter.loadThumbnail(recyclerView.getContext(), attachment)
+                    .listener(new LoadListener(url))
+                    .preload(thumbnailSize, thumbnailSize);
+        }
+    }
+
+    private void remember(String url) {
+        if (!preloaded.add(url))
+            return;
+
+        if (preloaded.size() > MAX_REMEMBERED_URLS) {
+            Iterator<String> iterator = preloaded.iterator();
+            iterator.next();
+            iterator.remove();
+        }
+    }
+
+    private void onLoadFinished(String url, boolean success) {
+        loading.remove(url);
+        // Failed loads are not remembered, so they are tried again next time.
+        if (success)
+            remember(url);
+        startPendingLoads();
+    }
+
+    /**
+     * The thumbnails fill the width of the card, and are square.
+     */
+    private void updateThumbnailSize() {
+        for (int i = 0; i < recyclerView.getChildCount(); i++) {
+            View attachments = recyclerView.getChildAt(i).findViewById(R.id.item_recyclerAttachments);
+            if (attachments != null && attachments.getWidth() > 0) {
+                thumbnailSize = attachments.getWidth();
+                return;
+            }
+        }
+    }
+
+    private static int max(int[] values) {
+        int max = RecyclerView.NO_POSITION;
+        for (int value: values) max = Math.max(max, value);
+        return max;
+    }
+
+    private static int min(int[] values) {
+        int min = Integer.MAX_VALUE;
+        for (int value: values) {
+            if (value != RecyclerView.NO_POSITION) min = Math.min(min, value);
+        }
+        return min == Integer.MAX_VALUE ? RecyclerView.NO_POSITION : min;
+    }
+
+    private class LoadListener implements RequestListener<Drawable> {
+        private final String url;
+
+        LoadListener(String url) {
+            this.url = url;
+        }
+
+        @Override
+        public boolean onLoadFailed(@Nullable GlideException e, Object model, Target<Drawable> target, boolean isFirstResource) {
+            onLoadFinished(url, false);
+            return false;
+        }
+
+        @Override
+        public boolean onResourceReady(Drawable resource, Object model, Target<Drawable> target, DataSource dataSource, boolean isFirstResource) {
+            onLoadFinished(url, true);
+            return false;
+        }
+    }
+}
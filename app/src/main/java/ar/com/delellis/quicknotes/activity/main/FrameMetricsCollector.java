@@ -0,0 +1,205 @@
+/*
+ * Nextcloud Quicknotes Android client application.
+ *
+ * @copyright Copyright (c) 2020 Matias De lellis <mati86dl@gmail.com>
+ *
+ * @author Matias De lellis <mati86dl@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package ar.com.delellis.quicknotes.activity.main;
+
+import android.app.Activity;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.SparseArray;
+import android.view.Display;
+import android.view.FrameMetrics;
+import android.view.Window;
+
+import androidx.annotation.NonNull;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Collect frame durations of the notes list, and the inflate and bind
+ * times of the cards, to measure how smooth the scroll is.
+ */
+public class FrameMetricsCollector {
+
+    public static final String REPORT_FILE_NAME = "frame_metrics.txt";
+
+    private static final int MAX_SAMPLES = 2000;
+    private static final float DEFAULT_REFRESH_RATE = 60f;
+
+    private final Activity activity;
+
+    private final Stats frames = new Stats();
+    private int jankCount = 0;
+    private final SparseArray<Stats> inflateTimes = new SparseArray<>();
+    private final SparseArray<Stats> bindTimes = new SparseArray<>();
+
+    private boolean started = false;
+
+    private final Window.OnFrameMetricsAvailableListener frameMetricsListener = (window, frameMetrics, dropCountSinceLastInvocation) -> {
+        if (frameMetrics.getMetric(FrameMetrics.FIRST_DRAW_FRAME) == 1)
+            return;
+
+        long duration = frameMetrics.getMetric(FrameMetrics.TOTAL_DURATION);
+        long jankThreshold = getFrameBudgetNanos(window.getDecorView().getDisplay());
+        synchronized (FrameMetricsCollector.this) {
+            frames.add(duration);
+            if (duration > jankThreshold) jankCount++;
+        }
+    };
+
+    public FrameMetricsCollector(@NonNull Activity activity) {
+        this.activity = activity;
+    }
+
+    public void start() {
+        if (started)
+            return;
+        activity.getWindow().addOnFrameMetricsAvailableListener(frameMetricsListener, new Handler(Looper.getMainLooper()));
+        started = true;
+    }
+
+    public void stop() {
+        if (!started)
+            return;
+        activity.getWindow().removeOnFrameMetricsAvailableListener(frameMetricsListener);
+        started = false;
+    }
+
+    public synchronized void addInflateTime(int viewType, long nanos) {
+        statsOf(inflateTimes, viewType).add(nanos);
+    }
+
+    public synchronized void addBindTime(int viewType, long nanos) {
+        statsOf(bindTimes, viewType).add(nanos);
+    }
+
+    public synchronized void reset() {
+        frames.clear();
+        jankCount = 0;
+        inflateTimes.clear();
+        bindTimes.clear();
+    }
+
+    /**
+     * @return human readable report of the collected metrics.
+     */
+    @NonNull
+    public synchronized String getReport() {
+        StringBuilder report = new StringBuilder();
+        report.append("Frames: ").append(frames.getCount())
+                .append(", janky: ").append(jankCount)
+                .append(String.format(Locale.ROOT, " (%.1f%%)", frames.getCount() > 0 ? 100f * jankCount / frames.getCount() : 0f))
+                .append('\n');
+        appendPercentiles(report, "Frame duration", frames);
+
+        for (int i = 0; i < inflateTimes.size(); i++) {
+            appendPercentiles(report, "Inflate view type " + inflateTimes.keyAt(i), inflateTimes.valueAt(i));
+        }
+        for (int i = 0; i < bindTimes.size(); i++) {
+            appendPercentiles(report, "Bind view type " + bindTimes.keyAt(i), bindTimes.valueAt(i));
+        }
+        return report.toString();
+    }
+
+    /**
+     * Write the report on the app files folder.
+     * @return the report file.
+     * @throws IOException when the file can't be written.
+     */
+    @NonNull
+    public File dumpReport() throws IOException {
+        File file = new File(activity.getExternalFilesDir(null), REPORT_FILE_NAME);
+        try (Writer writer = new FileWriter(file)) {
+            writer.write(getReport());
+        }
+        return file;
+    }
+
+    /**
+     * A frame is janky when it takes longer than a refresh period of the
+     * display, which is not 16ms on 90 or 120Hz screens.
+     * @param display where the window is shown, or null when detached.
+     * @return the duration of a refresh period.
+     */
+    private static long getFrameBudgetNanos(Display display) {
+        float refreshRate = display != null ? display.getRefreshRate() : 0f;
+        if (refreshRate < 1f)
+            refreshRate = DEFAULT_REFRESH_RATE;
+        return (long) (1_000_000_000L / refreshRate);
+    }
+
+    private static Stats statsOf(SparseArray<Stats> statsArray, int viewType) {
+        Stats stats = statsArray.get(viewType);
+        if (stats == null) {
+            stats = new Stats();
+            statsArray.put(viewType, stats);
+        }
+        return stats;
+    }
+
+    private static void appendPercentiles(StringBuilder report, String label, Stats stats) {
+        report.append(String.format(Locale.ROOT, "%s: p50 %.2fms, p90 %.2fms, p95 %.2fms, p99 %.2fms, max %.2fms (%d samples)\n",
+                label,
+                stats.getPercentile(50) / 1e6,
+                stats.getPercentile(90) / 1e6,
+                stats.getPercentile(95) / 1e6,
+                stats.getPercentile(99) / 1e6,
+                stats.getPercentile(100) / 1e6,
+                stats.getCount()));
+    }
+
+    /**
+     * Keep the last samples on a ring buffer.
+     */
+    private static class Stats {
+        private final long[] samples = new long[MAX_SAMPLES];
+        private int count = 0;
+
+        void add(long nanos) {
+            samples[count % MAX_SAMPLES] = nanos;
+            count++;
+        }
+
+        void clear() {
+            count = 0;
+        }
+
+        int getCount() {
+            return count;
+        }
+
+        long getPercentile(int percentile) {
+            int size = Math.min(count, MAX_SAMPLES);
+            if (size == 0)
+                return 0;
+
+            long[] sorted = Arrays.copyOf(samples, size);
+            Arrays.sort(sorted);
+            int index = (int) Math.ceil(percentile / 100.0 * size) - 1;
+            return sorted[Math.max(0, Math.min(index, size - 1))];
+        }
+    }
+}
@@ -40,13 +40,16 @@ import android.content.SharedPreferences;
 import android.net.Uri;
 import android.os.Bundle;
 import android.text.TextUtils;
+import android.widget.Toast;
 import androidx.appcompat.widget.SearchView;
 
 import com.google.android.material.card.MaterialCardView;
+import com.google.android.material.dialog.MaterialAlertDialogBuilder;
 import com.google.android.material.floatingactionbutton.FloatingActionButton;
 import com.nextcloud.android.sso.helper.SingleAccountHelper;
 
-import java.io.Serializable;
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
@@ -56,16 +59,20 @@ import ar.com.delellis.quicknotes.R;
 import ar.com.delellis.quicknotes.activity.error.ErrorActivity;
 import ar.com.delellis.quicknotes.activity.login.LoginActivity;
 import ar.com.delellis.quicknotes.activity.about.AboutActivity;
+import ar.com.delellis.quicknotes.activity.editor.DraftStore;
 import ar.com.delellis.quicknotes.activity.editor.EditorActivity;
 import ar.com.delellis.quicknotes.activity.main.NavigationAdapter.NavigationItem;
 import ar.com.delellis.quicknotes.activity.main.NavigationAdapter.TagNavigationItem;
 import ar.com.delellis.quicknotes.activity.main.SortingOrderDialogFragment.OnSortingOrderListener;
 import ar.com.delellis.quicknotes.api.ApiProvider;
 import ar.com.delellis.quicknotes.api.helper.IResponseCallback;
+import ar.com.delellis.quicknotes.api.helper.StringPool;
 import ar.com.delellis.quicknotes.model.Capabilities;
 import ar.com.delellis.quicknotes.model.Note;
+import ar.com.delellis.quicknotes.model.NoteRepository;
 import ar.com.delellis.quicknotes.model.Tag;
 import ar.com.delellis.quicknotes.util.CapabilitiesService;
+import ar.com.delellis.quicknotes.util.HtmlUtil;
 
 import static android.view.View.GONE;
 import static android.view.View.VISIBLE;
@@ -78,6 +85,11 @@ public class MainActivity extends AppCompatActivity implements MainView, OnSorti
     private static final int INTENT_ADD = 100;
     private static final int INTENT_EDIT = 200;
 
+    private static final int PREFETCH_NOTE_VIEWS = 8;
+
+    private static final int PRELOAD_NOTE_ATTACHMENTS = 6;
+    private static final int PRELOAD_MAX_CONCURRENT_LOADS = 4;
+
     public static final String ADAPTER_KEY_ALL = "all_notes";
     public static final String ADAPTER_KEY_PINNED = "pinned";
     public static final String ADAPTER_KEY_SHARED_BY = "shared_by";
@@ -86,6 +98,7 @@ public class MainActivity extends AppCompatActivity implements MainView, OnSorti
     public static final String ADAPTER_KEY_ABOUT = "about";
     public static final String ADAPTER_KEY_DONATE = "donate";
     public static final String ADAPTER_KEY_SWITCH_ACCOUNT = "switch_account";
+    public static final String ADAPTER_KEY_FRAME_METRICS = "frame_metrics";
 
     private SharedPreferences preferences;
 
@@ -100,6 +113,8 @@ public class MainActivity extends AppCompatActivity implements MainView, OnSorti
 
     private MainPresenter presenter;
     private NoteAdapter noteAdapter;
+    private NoteViewPrefetcher noteViewPrefetcher;
+    private FrameMetricsCollector frameMetricsCollector;
     private ItemClickListener itemClickListener;
 
     NavigationAdapter navigationFilterAdapter;
@@ -111,6 +126,8 @@ public class MainActivity extends AppCompatActivity implements MainView, OnSorti
 
     private ApiProvider mApi;
 
+    private final NoteRepository.OnChangeListener notesChangeListener = () -> runOnUiThread(this::onNotesChanged);
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -132,8 +149,7 @@ public class MainActivity extends AppCompatActivity implements MainView, OnSorti
             Note note = noteAdapter.get(position);
 
             Intent intent = new Intent(this, EditorActivity.class);
-            intent.putExtra("note", note);
-            intent.putExtra("tags", (Serializable) tags);
+            intent.putExtra(EditorActivity.EXTRA_NOTE_ID, note.getId());
 
             startActivityForResult(intent, INTENT_EDIT);
         });
@@ -141,16 +157,29 @@ public class MainActivity extends AppCompatActivity implements MainView, OnSorti
         noteAdapter = new NoteAdapter(this, itemClickListener);
         recyclerView.setAdapter(noteAdapter);
 
+        // Inflate the first cards while the notes are downloaded.
+        noteViewPrefetcher = new NoteViewPrefetcher(this, R.layout.item_note);
+        noteViewPrefetcher.prefetch(recyclerView, PREFETCH_NOTE_VIEWS);
+        noteAdapter.setViewPrefetcher(noteViewPrefetcher);
+        recyclerView.getRecycledViewPool().setMaxRecycledViews(0, PREFETCH_NOTE_VIEWS);
+
+        // Measure the list smoothness only on debug builds.
+        if (BuildConfig.DEBUG) {
+            frameMetricsCollector = new FrameMetricsCollector(this);
+            noteAdapter.setFrameMetricsCollector(frameMetricsCollector);
+        }
+
+        recyclerView.addOnScrollListener(new AttachmentPreloader(recyclerView, noteAdapter, PRELOAD_NOTE_ATTACHMENTS, PRELOAD_MAX_CONCURRENT_LOADS));
+
         noteAdapter.setSortRule(sortRule);
         noteAdapter.setFirstPinned(pinnedFirst);
 
         swipeRefresh = findViewById(R.id.swipe_refresh);
-        swipeRefresh.setOnRefreshListener(() -> presenter.getNotes());
+        swipeRefresh.setOnRefreshListener(() -> presenter.getNotes(true));
 
         fab = findViewById(R.id.add);
         fab.setOnClickListener(view -> {
             Intent intent = new Intent(this, EditorActivity.class);
-            intent.putExtra("tags", (Serializable) tags);
             startActivityForResult(intent, INTENT_ADD);
         });
 
@@ -200,10 +229,36 @@ public class MainActivity extends AppCompatActivity implements MainView, OnSorti
         updateSortingIcon(sortRule);
         updateGridIcon(gridViewEnabled);
 
-        mApi = new ApiProvider(getApplicationContext());
+        mApi = ApiProvider.getInstance(getApplicationContext());
+        NoteRepository.getInstance().addOnChangeListener(notesChangeListener);
         presenter.getNotes();
     }
 
+    @Override
+    protected void onResume() {
+        super.onResume();
+        if (frameMetricsCollector != null) {
+            frameMetricsCollector.start();
+        }
+    }
+
+    @Override
+    protected void onPause() {
+        if (frameMetricsCollector != null) {
+            frameMetricsCollector.stop();
+        }
+        super.onPause();
+    }
+
+    @Override
+    protected void onDestroy() {
+        noteViewPrefetcher.quit();
+        noteAdapter.release();
+        presenter.release();
+        NoteRepository.getInstance().removeOnChangeListener(notesChangeListener);
+        super.onDestroy();
+    }
+
     private void setupNavigationMenu() {
         ArrayList<NavigationItem> navItems = new ArrayList<>();
 
@@ -237,6 +292,9 @@ public class MainActivity extends AppCompatActivity implements MainView, OnSorti
                 case ADAPTER_KEY_SWITCH_ACCOUNT:
                     switch_account();
                     break;
+                case ADAPTER_KEY_FRAME_METRICS:
+                    showFrameMetrics();
+                    break;
             }
         });
 
@@ -244,6 +302,8 @@ public class MainActivity extends AppCompatActivity implements MainView, OnSorti
         if (!BuildConfig.FLAVOR.equals("play"))
             navItems.add(new NavigationItem(ADAPTER_KEY_DONATE, getString(R.string.donate), NavigationAdapter.ICON_FAVORITE));
         navItems.add(new NavigationItem(ADAPTER_KEY_SWITCH_ACCOUNT, getString(R.string.switch_account), NavigationAdapter.ICON_LOGOUT));
+        if (frameMetricsCollector != null)
+            navItems.add(new NavigationItem(ADAPTER_KEY_FRAME_METRICS, getString(R.string.frame_metrics), NavigationAdapter.ICON_INFO));
         navigationCommonAdapter.setItems(navItems);
 
         RecyclerView navigationMenuCommon = findViewById(R.id.navigationCommon);
@@ -297,11 +357,32 @@ public class MainActivity extends AppCompatActivity implements MainView, OnSorti
     }
 
     private void switch_account() {
+        new DraftStore(this, ApiProvider.getUsername()).deleteStateDrafts();
+        ApiProvider.teardown();
         SingleAccountHelper.setCurrentAccount(this, null);
         Intent intent = new Intent(MainActivity.this, LoginActivity.class);
         startActivity(intent);
     }
 
+    private void showFrameMetrics() {
+        new MaterialAlertDialogBuilder(this)
+                .setTitle(R.string.frame_metrics)
+                .setMessage(frameMetricsCollector.getReport() + "\n" + HtmlUtil.getCacheStats() + "\n"
+                        + StringPool.forAccount(ApiProvider.getUsername()).getStats() + "\n"
+                        + presenter.getFetchStats())
+                .setPositiveButton(R.string.save, (dialog, which) -> {
+                    try {
+                        File file = frameMetricsCollector.dumpReport();
+                        Toast.makeText(this, getString(R.string.frame_metrics_saved, file.getAbsolutePath()), Toast.LENGTH_LONG).show();
+                    } catch (IOException e) {
+                        Toast.makeText(this, e.getLocalizedMessage(), Toast.LENGTH_LONG).show();
+                    }
+                })
+                .setNeutralButton(R.string.frame_metrics_reset, (dialog, which) -> frameMetricsCollector.reset())
+                .setNegativeButton(R.string.common_cancel, (dialog, which) -> dialog.dismiss())
+                .show();
+    }
+
     private void openSortingOrderDialogFragment(FragmentManager supportFragmentManager, int sortOrder) {
         FragmentTransaction fragmentTransaction = supportFragmentManager.beginTransaction();
         fragmentTransaction.addToBackStack(null);
@@ -309,16 +390,6 @@ public class MainActivity extends AppCompatActivity implements MainView, OnSorti
         SortingOrderDialogFragment.newInstance(sortOrder).show(fragmentTransaction, SortingOrderDialogFragment.SORTING_ORDER_FRAGMENT);
     }
 
-    @Override
-    public void onActivityResult(int requestCode, int resultCode, Intent data) {
-        super.onActivityResult(requestCode, resultCode, data);
-        if (requestCode == INTENT_ADD && resultCode == RESULT_OK) {
-            presenter.getNotes();
-        } else if (requestCode == INTENT_EDIT && resultCode == RESULT_OK) {
-            presenter.getNotes();
-        }
-    }
-
     @Override
     public void showLoading() {
         swipeRefresh.setRefreshing(true);
@@ -329,8 +400,33 @@ public class MainActivity extends AppCompatActivity implements MainView, OnSorti
         swipeRefresh.setRefreshing(false);
     }
 
+    @Override
+    public void onGetPartialResult(List<Note> note_list) {
+        noteAdapter.setNoteList(note_list);
+    }
+
     @Override
     public void onGetResult(List<Note> note_list) {
+        showNotes(note_list);
+    }
+
+    @Override
+    public void onGetCachedResult(List<Note> note_list, String errorMessage) {
+        // Keep working with the last notes while the server is unavailable.
+        Toast.makeText(this, R.string.showing_cached_notes, Toast.LENGTH_LONG).show();
+        onGetResult(note_list);
+    }
+
+    /**
+     * Show the notes changed locally by the editor, without downloading them again.
+     */
+    private void onNotesChanged() {
+        List<Note> notes = NoteRepository.getInstance().getNotes();
+        presenter.invalidate(notes);
+        showNotes(notes);
+    }
+
+    private void showNotes(List<Note> note_list) {
         noteAdapter.setNoteList(note_list);
 
         // Fill tags.
@@ -342,6 +438,9 @@ public class MainActivity extends AppCompatActivity implements MainView, OnSorti
         tags.clear();
         tags.addAll(hTags);
 
+        // Share them with the other activities.
+        NoteRepository.getInstance().setTags(tags);
+
         // Fill colors
         colors.clear();
         for (Note note: note_list) {
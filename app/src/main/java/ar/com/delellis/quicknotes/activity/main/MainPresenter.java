@@ -21,48 +21,79 @@
 
 package ar.com.delellis.quicknotes.activity.main;
 
-import androidx.annotation.NonNull;
 import androidx.appcompat.app.AppCompatActivity;
 
 import java.util.List;
 
-import ar.com.delellis.quicknotes.api.ApiProvider;
 import ar.com.delellis.quicknotes.model.Note;
-import retrofit2.Call;
-import retrofit2.Callback;
-import retrofit2.Response;
 
-public class MainPresenter {
+public class MainPresenter implements NotesFetcher.Listener {
+    // Refreshes closer than this reuse the last downloaded list.
+    private static final long MIN_REFRESH_INTERVAL_MS = 2000;
+
     private final MainView view;
+    private final NotesFetcher notesFetcher = NotesFetcher.getInstance();
 
     public MainPresenter(MainView view) {
         this.view = view;
+        notesFetcher.setMinRefreshInterval(MIN_REFRESH_INTERVAL_MS);
     }
 
     public void getNotes() {
+        getNotes(false);
+    }
+
+    /**
+     * @param userInitiated true if the user asked to refresh, so the list is
+     *                      downloaded again even if it was just downloaded.
+     */
+    public void getNotes(boolean userInitiated) {
         view.showLoading();
+        notesFetcher.fetch(this, userInitiated);
+    }
+
+    /**
+     * Forget the last downloaded list, since the notes were changed locally.
+     * @param notes notes with the local changes.
+     */
+    public void invalidate(List<Note> notes) {
+        notesFetcher.invalidate(notes);
+    }
+
+    public void release() {
+        notesFetcher.cancel(this);
+    }
+
+    public String getFetchStats() {
+        return notesFetcher.getStats();
+    }
+
+    @Override
+    public void onPartialResult(List<Note> notes) {
+        ((AppCompatActivity) view).runOnUiThread(() -> view.onGetPartialResult(notes));
+    }
+
+    @Override
+    public void onResult(List<Note> notes) {
+        ((AppCompatActivity) view).runOnUiThread(() -> {
+            view.hideLoading();
+            view.onGetResult(notes);
+        });
+    }
+
+    @Override
+    public void onCachedResult(List<Note> notes, String errorMessage) {
+        ((AppCompatActivity) view).runOnUiThread(() -> {
+            view.hideLoading();
+            view.onGetCachedResult(notes, errorMessage);
+        });
+    }
 
-        Call<List<Note>> call = ApiProvider.getQuicknotesAPI().getNotes();
-        call.enqueue(new Callback<List<Note>>() {
-            @Override
-            public void onResponse(@NonNull Call<List<Note>> call, @NonNull Response<List<Note>> response) {
-                ((AppCompatActivity) view).runOnUiThread(() -> {
-                    view.hideLoading();
-                    if (response.isSuccessful() && response.body() != null) {
-                        view.onGetResult(response.body());
-                    } else {
-                        view.onErrorLoading(null);
-                    }
-                });
-            }
-
-            @Override
-            public void onFailure(@NonNull Call<List<Note>> call, @NonNull Throwable t) {
-                ((AppCompatActivity) view).runOnUiThread(() -> {
-                    view.hideLoading();
-                    view.onErrorLoading(t.getLocalizedMessage());
-                });
-            }
+    @Override
+    public void onError(String errorMessage) {
+        ((AppCompatActivity) view).runOnUiThread(() -> {
+            view.hideLoading();
+            view.onErrorLoading(errorMessage);
         });
     }
 }
@@ -28,6 +28,8 @@ import ar.com.delellis.quicknotes.model.Note;
 public interface MainView {
     void showLoading();
     void hideLoading();
+    void onGetPartialResult(List<Note> notes);
     void onGetResult(List<Note> notes);
+    void onGetCachedResult(List<Note> notes, String errorMessage);
     void onErrorLoading(String errorMessage);
 }
@@ -22,7 +22,6 @@
 package ar.com.delellis.quicknotes.activity.main;
 
 import android.content.Context;
-import android.graphics.Color;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -32,11 +31,10 @@ import android.widget.ImageView;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
+import androidx.appcompat.widget.AppCompatTextView;
 import androidx.cardview.widget.CardView;
 import androidx.recyclerview.widget.RecyclerView;
 
-import org.wordpress.aztec.AztecText;
-
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -49,7 +47,6 @@ import ar.com.delellis.quicknotes.shared.AttachmentAdapter;
 import ar.com.delellis.quicknotes.shared.ShareAdapter;
 import ar.com.delellis.quicknotes.shared.TagAdapter;
 import ar.com.delellis.quicknotes.util.ColorUtil;
-import ar.com.delellis.quicknotes.util.HtmlUtil;
 
 public class NoteAdapter extends RecyclerView.Adapter<NoteAdapter.RecyclerViewAdapter> implements Filterable {
 
@@ -68,11 +65,19 @@ public class NoteAdapter extends RecyclerView.Adapter<NoteAdapter.RecyclerViewAd
 
     private ItemClickListener itemClickListener;
 
+    private NoteViewPrefetcher viewPrefetcher;
+    private FrameMetricsCollector frameMetricsCollector;
+    private final NotePreviewRenderer previewRenderer;
+
     public NoteAdapter(Context context, ItemClickListener itemClickListener) {
         this.context = context;
         this.itemClickListener = itemClickListener;
 
         this.tintColor = context.getResources().getColor(R.color.defaultNoteTint);
+
+        this.previewRenderer = new NotePreviewRenderer(tintColor);
+
+        ColorUtil.loadPalette(context);
     }
 
     public void setNoteList(@NonNull List<Note> noteList) {
@@ -83,6 +88,18 @@ public class NoteAdapter extends RecyclerView.Adapter<NoteAdapter.RecyclerViewAd
         notifyDataSetChanged();
     }
 
+    public void setViewPrefetcher(NoteViewPrefetcher viewPrefetcher) {
+        this.viewPrefetcher = viewPrefetcher;
+    }
+
+    public void setFrameMetricsCollector(FrameMetricsCollector frameMetricsCollector) {
+        this.frameMetricsCollector = frameMetricsCollector;
+    }
+
+    public void release() {
+        previewRenderer.shutdown();
+    }
+
     public Note get(int position) {
         return noteListFiltered.get(position);
     }
@@ -112,17 +129,29 @@ public class NoteAdapter extends RecyclerView.Adapter<NoteAdapter.RecyclerViewAd
     @NonNull
     @Override
     public RecyclerViewAdapter onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
-        View view = LayoutInflater.from(context).inflate(R.layout.item_note, parent, false);
-        return new RecyclerViewAdapter(view, itemClickListener);
+        long startTime = System.nanoTime();
+
+        View view = viewPrefetcher != null ? viewPrefetcher.poll() : null;
+        if (view == null) {
+            view = LayoutInflater.from(context).inflate(R.layout.item_note, parent, false);
+        }
+        RecyclerViewAdapter holder = new RecyclerViewAdapter(view, itemClickListener);
+
+        if (frameMetricsCollector != null) {
+            frameMetricsCollector.addInflateTime(viewType, System.nanoTime() - startTime);
+        }
+        return holder;
     }
 
     @Override
     public void onBindViewHolder(@NonNull RecyclerViewAdapter holder, int position) {
+        long startTime = System.nanoTime();
+
         Note note = noteListFiltered.get(position);
 
-        holder.tv_title.setText(HtmlUtil.cleanString(note.getTitle()));
-        holder.tv_content.fromHtml(HtmlUtil.cleanHtml(note.getContent()), true);
-        holder.card_item.setCardBackgroundColor(Color.parseColor(note.getColor()));
+        holder.tv_title.setText(note.getPlainTitle());
+        previewRenderer.render(holder.tv_content, note.getCleanContent());
+        holder.card_item.setCardBackgroundColor(ColorUtil.parseColor(note.getColor()));
         holder.im_shared.setVisibility(note.getIsShared() ? View.VISIBLE : View.GONE);
         holder.im_pinned.setVisibility(note.getIsPinned() ? View.VISIBLE : View.GONE);
 
@@ -138,8 +167,9 @@ public class NoteAdapter extends RecyclerView.Adapter<NoteAdapter.RecyclerViewAd
         holder.shareAdapter.notifyDataSetChanged();
         holder.shareRecyclerView.setAdapter(holder.shareAdapter);
 
-        ColorUtil.imageViewTintColor(holder.im_shared, tintColor);
-        ColorUtil.imageViewTintColor(holder.im_pinned, tintColor);
+        if (frameMetricsCollector != null) {
+            frameMetricsCollector.addBindTime(holder.getItemViewType(), System.nanoTime() - startTime);
+        }
     }
 
     @Override
@@ -164,9 +194,9 @@ public class NoteAdapter extends RecyclerView.Adapter<NoteAdapter.RecyclerViewAd
             } else {
                 String query = charSequence.toString().toLowerCase();
                 for (Note note: noteList) {
-                    if (HtmlUtil.cleanString(note.getTitle()).contains(query)) {
+                    if (note.getPlainTitle().toLowerCase().contains(query)) {
                         filteredNotes.add(note);
-                    } else if (HtmlUtil.cleanString(note.getContent()).contains(query)) {
+                    } else if (note.getPlainContent().toLowerCase().contains(query)) {
                         filteredNotes.add(note);
                     }
                 }
@@ -313,7 +343,7 @@ public class NoteAdapter extends RecyclerView.Adapter<NoteAdapter.RecyclerViewAd
     class RecyclerViewAdapter extends RecyclerView.ViewHolder implements View.OnClickListener {
         CardView card_item;
         TextView tv_title;
-        AztecText tv_content;
+        AppCompatTextView tv_content;
         ImageView im_shared;
         ImageView im_pinned;
 
@@ -338,6 +368,9 @@ public class NoteAdapter extends RecyclerView.Adapter<NoteAdapter.RecyclerViewAd
             im_shared = itemView.findViewById(R.id.item_shared);
             im_pinned = itemView.findViewById(R.id.item_pinned);
 
+            im_shared.setImageDrawable(ColorUtil.getTintedDrawable(context, R.drawable.ic_shared_grey, tintColor));
+            im_pinned.setImageDrawable(ColorUtil.getTintedDrawable(context, R.drawable.ic_pinned, tintColor));
+
             attachmentAdapter = new AttachmentAdapter();
             attachmentRecyclerView = itemView.findViewById(R.id.item_recyclerAttachments);
 
@@ -349,7 +382,6 @@ public class NoteAdapter extends RecyclerView.Adapter<NoteAdapter.RecyclerViewAd
 
             card_item.setOnClickListener(this);
             tv_content.setOnClickListener(this);
-            tv_content.setCalypsoMode(false);
 
             attachmentAdapter.setOnImageClickListener(position -> this.onClick(itemView));
         }
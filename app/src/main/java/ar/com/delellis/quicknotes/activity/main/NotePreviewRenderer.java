@@ -0,0 +1,108 @@
+/*
+ * Nextcloud Quicknotes Android client application.
+ *
+ * @copyright Copyright (c) 2020 Matias De lellis <mati86dl@gmail.com>
+ *
+ * @author Matias De lellis <mati86dl@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package ar.com.delellis.quicknotes.activity.main;
+
+import android.text.Html;
+import android.text.SpannableStringBuilder;
+import android.text.Spanned;
+import android.text.style.BulletSpan;
+import android.text.style.QuoteSpan;
+
+import androidx.annotation.ColorInt;
+import androidx.annotation.NonNull;
+import androidx.appcompat.widget.AppCompatTextView;
+import androidx.core.text.PrecomputedTextCompat;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Read-only renderer of the note previews shown on the cards.
+ *
+ * It only handles the tags allowed by HtmlUtil.basicWhitelist(), and parses
+ * and measures the text out of the main thread.
+ */
+public class NotePreviewRenderer {
+
+    private static final int BULLET_GAP_WIDTH = 12;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    @ColorInt
+    private final int tintColor;
+
+    public NotePreviewRenderer(@ColorInt int tintColor) {
+        this.tintColor = tintColor;
+    }
+
+    /**
+     * Render the note content into the text view as soon as it is ready.
+     * @param textView view to show the preview.
+     * @param html clean content of the note.
+     */
+    public void render(@NonNull AppCompatTextView textView, @NonNull String html) {
+        PrecomputedTextCompat.Params params = textView.getTextMetricsParamsCompat();
+        Future<PrecomputedTextCompat> future = executor.submit(() -> PrecomputedTextCompat.create(toSpanned(html), params));
+        textView.setText(null);
+        textView.setTextFuture(future);
+    }
+
+    /**
+     * Convert the html to styled text, using the note tint on quotes and lists.
+     * @param html clean content of the note.
+     * @return styled text
+     */
+    @NonNull
+    public CharSequence toSpanned(@NonNull String html) {
+        Spanned spanned = Html.fromHtml(html, Html.FROM_HTML_MODE_COMPACT);
+        SpannableStringBuilder builder = new SpannableStringBuilder(spanned);
+
+        for (QuoteSpan span: builder.getSpans(0, builder.length(), QuoteSpan.class)) {
+            replaceSpan(builder, span, new QuoteSpan(tintColor));
+        }
+        for (BulletSpan span: builder.getSpans(0, builder.length(), BulletSpan.class)) {
+            replaceSpan(builder, span, new BulletSpan(BULLET_GAP_WIDTH, tintColor));
+        }
+
+        // Paragraphs leave trailing new lines that only add space to the card.
+        int end = builder.length();
+        while (end > 0 && Character.isWhitespace(builder.charAt(end - 1))) {
+            end--;
+        }
+        builder.delete(end, builder.length());
+
+        return builder;
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private static void replaceSpan(SpannableStringBuilder builder, Object oldSpan, Object newSpan) {
+        int start = builder.getSpanStart(oldSpan);
+        int end = builder.getSpanEnd(oldSpan);
+        int flags = builder.getSpanFlags(oldSpan);
+        builder.removeSpan(oldSpan);
+        builder.setSpan(newSpan, start, end, flags);
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Nextcloud Quicknotes Android client application.
+ *
+ * @copyright Copyright (c) 2020 Matias De lellis <mati86dl@gmail.com>
+ *
+ * @author Matias De lellis <mati86dl@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package ar.com.delellis.quicknotes.activity.main;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.Process;
+import android.util.Log;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+
+import androidx.annotation.LayoutRes;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Inflate note cards on a background looper, so the first layout and the
+ * flings of the notes list can take already inflated views.
+ */
+public class NoteViewPrefetcher {
+    private static final String TAG = NoteViewPrefetcher.class.getCanonicalName();
+
+    @NonNull
+    private final Context context;
+
+    @LayoutRes
+    private final int layoutRes;
+
+    private final HandlerThread thread;
+    private final Handler backgroundHandler;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    // Only accessed from the main thread.
+    private final Deque<View> views = new ArrayDeque<>();
+
+    private boolean quit = false;
+
+    public NoteViewPrefetcher(@NonNull Context context, @LayoutRes int layoutRes) {
+        this.context = context;
+        this.layoutRes = layoutRes;
+
+        thread = new HandlerThread("NoteViewPrefetcher", Process.THREAD_PRIORITY_BACKGROUND);
+        thread.start();
+        backgroundHandler = new Handler(thread.getLooper());
+    }
+
+    /**
+     * Start to inflate views in background.
+     * @param parent parent used to generate the layout params of the views.
+     * @param count number of views to inflate.
+     */
+    public void prefetch(@NonNull ViewGroup parent, int count) {
+        // The inflater is not thread safe, so use our own copy.
+        LayoutInflater inflater = LayoutInflater.from(context).cloneInContext(context);
+        for (int i = 0; i < count; i++) {
+            backgroundHandler.post(() -> {
+                View view;
+                try {
+                    view = inflater.inflate(layoutRes, parent, false);
+                } catch (RuntimeException e) {
+                    // Some views can't be inflated out of the main thread. Just fallback.
+                    Log.w(TAG, "Unable to inflate in background", e);
+                    backgroundHandler.removeCallbacksAndMessages(null);
+                    return;
+                }
+                mainHandler.post(() -> {
+                    if (!quit) views.add(view);
+                });
+            });
+        }
+    }
+
+    /**
+     * @return a view inflated in background, or null if there is none ready yet.
+     */
+    @Nullable
+    public View poll() {
+        return views.poll();
+    }
+
+    public void quit() {
+        quit = true;
+        views.clear();
+        backgroundHandler.removeCallbacksAndMessages(null);
+        mainHandler.removeCallbacksAndMessages(null);
+        thread.quit();
+    }
+}
@@ -0,0 +1,292 @@
+/*
+ * Nextcloud Quicknotes Android client application.
+ *
+ * @copyright Copyright (c) 2020 Matias De lellis <mati86dl@gmail.com>
+ *
+ * @author Matias De lellis <mati86dl@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package ar.com.delellis.quicknotes.activity.main;
+
+import android.os.SystemClock;
+
+import androidx.annotation.NonNull;
+
+import com.google.gson.stream.JsonReader;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+import ar.com.delellis.quicknotes.api.ApiProvider;
+import ar.com.delellis.quicknotes.api.helper.ModelTypeAdapters;
+import ar.com.delellis.quicknotes.api.helper.RequestScheduler;
+import ar.com.delellis.quicknotes.api.helper.ResilientCall;
+import ar.com.delellis.quicknotes.api.helper.RetryPolicy;
+import ar.com.delellis.quicknotes.api.helper.StringPool;
+import ar.com.delellis.quicknotes.model.Note;
+import ar.com.delellis.quicknotes.model.NoteRepository;
+import okhttp3.ResponseBody;
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+
+/**
+ * Downloads the notes list, merging the requests made while a download is
+ * in flight into that download, so refreshes fired together just fetch once.
+ * The downloaded notes are stored on the NoteRepository, and the listeners,
+ * called on a background thread, get them with the local changes applied.
+ */
+public class NotesFetcher {
+
+    // Notes shown on the first batch, then each batch doubles the previous.
+    private static final int FIRST_BATCH_SIZE = 20;
+
+    public interface Listener {
+        void onPartialResult(List<Note> notes);
+        void onResult(List<Note> notes);
+        void onError(String errorMessage);
+        /**
+         * The download failed, but the last known list is available.
+         */
+        void onCachedResult(List<Note> notes, String errorMessage);
+    }
+
+    private static final NotesFetcher instance = new NotesFetcher();
+
+    private long minRefreshInterval = 0;
+
+    // Listeners of the download in flight.
+    private Set<Listener> listeners = new LinkedHashSet<>();
+    private boolean inFlight = false;
+
+    // Last known list, downloaded or changed locally, used when the server fails.
+    private List<Note> lastResult = null;
+    private String lastAccount = null;
+    // Time of the last download, zero if the list changed locally since.
+    private long lastFetchTime = 0;
+
+    private int requestCount = 0;
+    private int fetchCount = 0;
+    private int mergedCount = 0;
+    private int throttledCount = 0;
+
+    private NotesFetcher() {
+    }
+
+    public static NotesFetcher getInstance() {
+        return instance;
+    }
+
+    /**
+     * @param minRefreshInterval milliseconds during which the last list is
+     *                           reused instead of downloaded again, 0 to disable.
+     */
+    public synchronized void setMinRefreshInterval(long minRefreshInterval) {
+        this.minRefreshInterval = minRefreshInterval;
+    }
+
+    /**
+     * Request the notes list.
+     * @param listener called with the result. Requesting again with the same
+     *                 listener before the result just merges both requests.
+     * @param userInitiated true if the user asked to refresh, so the list is
+     *                      downloaded even within the minimum refresh interval.
+     *                      A download already in flight is still joined.
+     */
+    public void fetch(@NonNull Listener listener, boolean userInitiated) {
+        List<Note> cached = null;
+        synchronized (this) {
+            requestCount++;
+            if (inFlight) {
+                mergedCount++;
+                listeners.add(listener);
+                return;
+            }
+
+            if (!userInitiated && lastFetchTime != 0 && lastResult != null && Objects.equals(lastAccount, ApiProvider.getUsername()) &&
+                    SystemClock.elapsedRealtime() - lastFetchTime < minRefreshInterval) {
+                throttledCount++;
+                cached = new ArrayList<>(lastResult);
+            } else {
+                listeners.add(listener);
+                start();
+            }
+        }
+
+        if (cached != null) {
+            listener.onResult(cached);
+        }
+    }
+
+    /**
+     * Stop calling the listener, e.g. when its activity is destroyed.
+     */
+    public synchronized void cancel(@NonNull Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Download again on the next request, even within the minimum refresh interval.
+     * @param notes notes with the local changes, shown if the server fails.
+     */
+    public synchronized void invalidate(@NonNull List<Note> notes) {
+        lastResult = new ArrayList<>(notes);
+        lastFetchTime = 0;
+    }
+
+    public synchronized String getStats() {
+        return String.format("Notes requests: %d, fetched %d, merged %d, throttled %d",
+                requestCount, fetchCount, mergedCount, throttledCount);
+    }
+
+    private void start() {
+        inFlight = true;
+        fetchCount++;
+        final String account = ApiProvider.getUsername();
+        final long version = NoteRepository.getInstance().getVersion();
+
+        Call<ResponseBody> call = ApiProvider.getQuicknotesAPI().getNotesStream();
+        ResilientCall.enqueue(call, RetryPolicy.IDEMPOTENT, RequestScheduler.Priority.VISIBLE, new Callback<ResponseBody>() {
+            @Override
+            public void onResponse(@NonNull Call<ResponseBody> call, @NonNull Response<ResponseBody> response) {
+                ResponseBody body = response.body();
+                if (!response.isSuccessful() || body == null) {
+                    finish(null, null, account);
+                    return;
+                }
+
+                try {
+                    finish(store(readNotes(body, account, version), account, version), null, account);
+                } catch (IOException | RuntimeException e) {
+                    finish(null, e.getLocalizedMessage(), account);
+                } finally {
+                    body.close();
+                }
+            }
+
+            @Override
+            public void onFailure(@NonNull Call<ResponseBody> call, @NonNull Throwable t) {
+                finish(null, t.getLocalizedMessage(), account);
+            }
+        });
+    }
+
+    /**
+     * Deliver the result to the listeners of the download.
+     */
+    private void finish(List<Note> notes, String errorMessage, String account) {
+        List<Listener> finished;
+        List<Note> cached = null;
+        synchronized (this) {
+            finished = new ArrayList<>(listeners);
+            listeners = new LinkedHashSet<>();
+
+            if (notes != null) {
+                lastResult = notes;
+                lastAccount = account;
+                lastFetchTime = SystemClock.elapsedRealtime();
+            } else if (lastResult != null && Objects.equals(lastAccount, account)) {
+                cached = lastResult;
+            }
+
+            inFlight = false;
+        }
+
+        for (Listener listener: finished) {
+            if (notes != null) {
+                listener.onResult(new ArrayList<>(notes));
+            } else if (cached != null) {
+                listener.onCachedResult(new ArrayList<>(cached), errorMessage);
+            } else {
+                listener.onError(errorMessage);
+            }
+        }
+    }
+
+    /**
+     * Store the downloaded notes, applying the local changes they miss.
+     * @return the notes to show.
+     */
+    private List<Note> store(List<Note> notes, String account, long version) {
+        NoteRepository repository = NoteRepository.getInstance();
+        return repository.setNotes(notes, account, version) ? repository.getNotes() : new ArrayList<>(notes);
+    }
+
+    private synchronized List<Listener> getListeners() {
+        return new ArrayList<>(listeners);
+    }
+
+    /**
+     * Parse the notes while they are downloaded, showing them in batches of
+     * increasing size so the first cards appear before the download ends.
+     * @param body response with the notes array.
+     * @param account account of the notes.
+     * @param version version of the repository when the download started.
+     * @return all the notes.
+     * @throws IOException on network or parse errors.
+     */
+    private List<Note> readNotes(ResponseBody body, String account, long version) throws IOException {
+        List<Note> notes = new ArrayList<>();
+        List<Note> batch = new ArrayList<>();
+        int batchSize = FIRST_BATCH_SIZE;
+
+        StringPool stringPool = StringPool.forAccount(account);
+        ModelTypeAdapters.NoteTypeAdapter noteTypeAdapter = new ModelTypeAdapters.NoteTypeAdapter(stringPool);
+
+        JsonReader reader = new JsonReader(body.charStream());
+        reader.setLenient(true);
+        reader.beginArray();
+        while (reader.hasNext()) {
+            Note note = noteTypeAdapter.read(reader);
+            if (note == null)
+                continue;
+
+            batch.add(note);
+            if (batch.size() >= batchSize) {
+                ingest(batch);
+                notes.addAll(batch);
+                batch.clear();
+                batchSize *= 2;
+
+                // The cards shown can be opened while the rest are downloaded.
+                List<Note> partial = store(notes, account, version);
+                for (Listener listener: getListeners()) {
+                    listener.onPartialResult(new ArrayList<>(partial));
+                }
+            }
+        }
+        reader.endArray();
+
+        ingest(batch);
+        notes.addAll(batch);
+        return notes;
+    }
+
+    /**
+     * Sanitize the downloaded notes once, using all cores, so the views just read the clean fields.
+     * @param notes downloaded notes.
+     */
+    private void ingest(List<Note> notes) {
+        if (notes == null)
+            return;
+
+        notes.parallelStream().forEach(Note::sanitize);
+    }
+}
@@ -36,17 +36,20 @@ import android.widget.ImageButton;
 import android.widget.LinearLayout;
 import android.widget.TextView;
 
-import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
 
 import ar.com.delellis.quicknotes.R;
+import ar.com.delellis.quicknotes.model.NoteRepository;
 import ar.com.delellis.quicknotes.model.Tag;
 import ar.com.delellis.quicknotes.shared.TagSelectionAdapter;
 
 
 public class TagsActivity extends AppCompatActivity {
 
+    public static final String EXTRA_TAG_SELECTION = "tagSelection";
+
     EditText filterText;
     ImageButton filterClearButton;
 
@@ -91,8 +94,14 @@ public class TagsActivity extends AppCompatActivity {
         });
 
         Intent intent = getIntent();
-        tags = (List<Tag>) Objects.requireNonNull(intent.getSerializableExtra("tags"));
-        tagSelection = (List<Tag>) Objects.requireNonNull(intent.getSerializableExtra("tagSelection"));
+        tags = NoteRepository.getInstance().getTags();
+        tagSelection = Objects.requireNonNull(intent.getParcelableArrayListExtra(EXTRA_TAG_SELECTION));
+        // The repository is empty if the process was killed, but the selected tags are always known.
+        for (Tag tag: tagSelection) {
+            if (!tags.contains(tag)) {
+                tags.add(tag);
+            }
+        }
 
         tagsAdapter.setTags(tags);
         tagsAdapter.setTagSelection(tagSelection);
@@ -104,7 +113,7 @@ public class TagsActivity extends AppCompatActivity {
     @Override
     public boolean onSupportNavigateUp() {
         Intent intent = new Intent();
-        intent.putExtra("tagSelection", (Serializable) tagsAdapter.getTagSelection());
+        intent.putParcelableArrayListExtra(EXTRA_TAG_SELECTION, new ArrayList<>(tagsAdapter.getTagSelection()));
         setResult(RESULT_OK, intent);
         finish();
 
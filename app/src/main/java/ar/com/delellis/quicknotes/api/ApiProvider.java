@@ -35,39 +35,129 @@ import android.util.Log;
 
 import org.jetbrains.annotations.NotNull;
 
+import ar.com.delellis.quicknotes.api.helper.CircuitBreaker;
 import ar.com.delellis.quicknotes.api.helper.GsonConfig;
+import ar.com.delellis.quicknotes.api.helper.StringPool;
+import ar.com.delellis.quicknotes.model.NoteRepository;
 import retrofit2.NextcloudRetrofitApiBuilder;
 
+/**
+ * Application scoped client of the Nextcloud API. The SSO binding is created
+ * once and shared by all screens, reconnecting lazily after a failure and
+ * only torn down when the account is switched.
+ */
 public class ApiProvider {
-    private final String TAG = ApiProvider.class.getCanonicalName();
+    private static final String TAG = ApiProvider.class.getCanonicalName();
+
+    public enum ConnectionState {
+        DISCONNECTED,
+        CONNECTING,
+        CONNECTED,
+        FAILED
+    }
+
+    private static ApiProvider instance;
 
     @NonNull
     protected Context context;
 
-    protected static QuicknotesAPI quicknotesAPI;
+    protected NextcloudAPI nextcloudAPI;
+
+    protected volatile ConnectionState connectionState = ConnectionState.DISCONNECTED;
+
+    // Ignores the callbacks of bindings already stopped.
+    private int bindGeneration = 0;
+
+    // Written under the lock of the instance, but read from any thread by the static getters.
+    protected static volatile QuicknotesAPI quicknotesAPI;
+
+    protected static volatile NextcloudServerApi nextcloudServerApi;
+
+    protected static volatile String username;
+
+    private ApiProvider(@NotNull Context context) {
+        this.context = context.getApplicationContext();
+    }
+
+    /**
+     * @param context any context, only its application context is kept.
+     * @return the shared provider, bound to the current account.
+     */
+    public static synchronized ApiProvider getInstance(@NotNull Context context) {
+        if (instance == null) {
+            instance = new ApiProvider(context);
+        }
+        instance.checkAccount();
+        return instance;
+    }
+
+    /**
+     * Drop the binding, the notes and the server state of the current
+     * account, so the next use binds the new one.
+     */
+    public static synchronized void teardown() {
+        if (instance != null) {
+            instance.stopSsoApi();
+        }
+        NoteRepository.getInstance().setAccount(null);
+        CircuitBreaker.getInstance().reset();
+    }
 
-    protected static NextcloudServerApi nextcloudServerApi;
+    public ConnectionState getConnectionState() {
+        return connectionState;
+    }
 
-    protected static String username;
+    private synchronized void checkAccount() {
+        String accountName = null;
+        try {
+            accountName = SingleAccountHelper.getCurrentSingleSignOnAccount(context).name;
+        } catch (NextcloudFilesAppAccountNotFoundException | NoCurrentAccountSelectedException e) {
+            Log.d(TAG, "checkAccount() called with: ex = [" + e + "]");
+        }
 
-    public ApiProvider(@NotNull Context context) {
-        this.context = context;
+        if (nextcloudAPI != null && accountName != null && !accountName.equals(username)) {
+            stopSsoApi();
+            // The other account may be on another server.
+            CircuitBreaker.getInstance().reset();
+        }
+        ensureConnected();
+    }
 
+    /**
+     * Bind to the SSO service unless it is already bound or connecting.
+     */
+    private synchronized void ensureConnected() {
+        if (nextcloudAPI != null && connectionState != ConnectionState.FAILED)
+            return;
+
+        stopSsoApi();
         initSsoApi();
     }
 
-    public void initSsoApi() {
+    private void initSsoApi() {
         try {
             SingleSignOnAccount ssoAccount = SingleAccountHelper.getCurrentSingleSignOnAccount(context);
-            NextcloudAPI nextcloudAPI = new NextcloudAPI(context, ssoAccount, new GsonConfig().create(), new NextcloudAPI.ApiConnectedListener() {
+            connectionState = ConnectionState.CONNECTING;
+            final int generation = ++bindGeneration;
+            nextcloudAPI = new NextcloudAPI(context, ssoAccount, new GsonConfig(StringPool.forAccount(ssoAccount.name)).create(), new NextcloudAPI.ApiConnectedListener() {
                 @Override
                 public void onConnected() {
-                    // Ignore..
+                    synchronized (ApiProvider.this) {
+                        if (generation == bindGeneration) {
+                            connectionState = ConnectionState.CONNECTED;
+                        }
+                    }
                 }
 
                 @Override
                 public void onError(Exception ex) {
-                    // Ignore...
+                    Log.w(TAG, "SSO connection failed: " + ex);
+                    synchronized (ApiProvider.this) {
+                        // Bind again on the next request.
+                        if (generation == bindGeneration) {
+                            connectionState = ConnectionState.FAILED;
+                        }
+                    }
                 }
             });
 
@@ -75,20 +165,45 @@ public class ApiProvider {
             nextcloudServerApi = new NextcloudRetrofitApiBuilder(nextcloudAPI, NextcloudServerApi.NC_API_ENDPOINT).create(NextcloudServerApi.class);
 
             username = ssoAccount.name;
+            NoteRepository.getInstance().setAccount(username);
         } catch (NextcloudFilesAppAccountNotFoundException | NoCurrentAccountSelectedException e) {
             Log.d(TAG, "setAccout() called with: ex = [" + e + "]");
+            connectionState = ConnectionState.DISCONNECTED;
+        }
+    }
+
+    private synchronized void stopSsoApi() {
+        if (nextcloudAPI != null) {
+            nextcloudAPI.stop();
+            nextcloudAPI = null;
+            bindGeneration++;
+        }
+        quicknotesAPI = null;
+        nextcloudServerApi = null;
+        username = null;
+        connectionState = ConnectionState.DISCONNECTED;
+    }
+
+    /**
+     * Reconnect if the last connection failed.
+     */
+    private static synchronized void reconnectIfFailed() {
+        if (instance != null && instance.connectionState == ConnectionState.FAILED) {
+            instance.ensureConnected();
         }
     }
 
     public static QuicknotesAPI getQuicknotesAPI() {
+        reconnectIfFailed();
         return quicknotesAPI;
     }
 
     public static NextcloudServerApi getNextcloudServerApi() {
+        reconnectIfFailed();
         return nextcloudServerApi;
     }
 
     public static String getUsername() {
         return username;
     }
-}
\ No newline at end of file
+}
@@ -27,6 +27,7 @@ import ar.com.delellis.quicknotes.model.Attachment;
 import ar.com.delellis.quicknotes.model.Note;
 
 import okhttp3.MultipartBody;
+import okhttp3.ResponseBody;
 import retrofit2.Call;
 import retrofit2.http.Body;
 import retrofit2.http.DELETE;
@@ -36,6 +37,7 @@ import retrofit2.http.POST;
 import retrofit2.http.PUT;
 import retrofit2.http.Part;
 import retrofit2.http.Path;
+import retrofit2.http.Streaming;
 
 public interface QuicknotesAPI {
     String API_ENDPOINT = "/apps/quicknotes/api/v1";
@@ -43,6 +45,10 @@ public interface QuicknotesAPI {
     @GET("/notes")
     Call<List<Note>> getNotes();
 
+    @Streaming
+    @GET("/notes")
+    Call<ResponseBody> getNotesStream();
+
     @POST("/notes")
     Call<Note> create(
             @Body Note note
@@ -0,0 +1,184 @@
+/*
+ * Nextcloud Quicknotes Android client application.
+ *
+ * @copyright Copyright (c) 2020 Matias De lellis <mati86dl@gmail.com>
+ *
+ * @author Matias De lellis <mati86dl@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package ar.com.delellis.quicknotes.api.helper;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+
+import ar.com.delellis.quicknotes.model.Capabilities;
+
+/**
+ * Streaming parser of the OCS capabilities response. It only reads the server
+ * version, the quicknotes capabilities and the status code, skipping the
+ * capabilities of all other apps without building them as objects.
+ */
+public class CapabilitiesTypeAdapter extends TypeAdapter<Capabilities> {
+
+    private static final int STATUS_MAINTENANCE = 503;
+
+    @Override
+    public void write(JsonWriter out, Capabilities capabilities) throws IOException {
+        if (capabilities == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginObject();
+        out.name("quicknotesVersion").value(capabilities.getQuicknotesVersion());
+        out.name("quicknotesApiVersion").value(capabilities.getQuicknotesApiVersion());
+        out.name("nextcloudVersion").value(capabilities.getNextcloudVersion());
+        out.name("maintenanceEnabled").value(capabilities.isMaintenanceEnabled());
+        out.endObject();
+    }
+
+    @Override
+    public Capabilities read(JsonReader in) throws IOException {
+        Capabilities capabilities = new Capabilities();
+        if (in.peek() != JsonToken.BEGIN_OBJECT) {
+            in.skipValue();
+            return capabilities;
+        }
+        in.beginObject();
+        while (in.hasNext()) {
+            if (in.nextName().equals("ocs") && in.peek() == JsonToken.BEGIN_OBJECT) {
+                readOcs(in, capabilities);
+            } else {
+                in.skipValue();
+            }
+        }
+        in.endObject();
+        return capabilities;
+    }
+
+    private void readOcs(JsonReader in, Capabilities capabilities) throws IOException {
+        // Once done, the rest of the document is skipped without allocations.
+        boolean done = false;
+        in.beginObject();
+        while (in.hasNext()) {
+            String name = in.nextName();
+            if (done || in.peek() != JsonToken.BEGIN_OBJECT) {
+                in.skipValue();
+            } else if (name.equals("meta")) {
+                done = readMeta(in, capabilities);
+            } else if (name.equals("data")) {
+                readData(in, capabilities);
+            } else {
+                in.skipValue();
+            }
+        }
+        in.endObject();
+    }
+
+    /**
+     * @return true if the server is in maintenance, so the data is not relevant.
+     */
+    private boolean readMeta(JsonReader in, Capabilities capabilities) throws IOException {
+        in.beginObject();
+        while (in.hasNext()) {
+            if (in.nextName().equals("statuscode") && in.peek() != JsonToken.NULL) {
+                capabilities.setMaintenanceEnabled(in.nextInt() == STATUS_MAINTENANCE);
+            } else {
+                in.skipValue();
+            }
+        }
+        in.endObject();
+        if (capabilities.isMaintenanceEnabled()) {
+            // Data could be read before meta, but it must be ignored.
+            capabilities.setNextcloudVersion(null);
+            capabilities.setQuicknotesVersion(null);
+            capabilities.setQuicknotesApiVersion(null);
+            return true;
+        }
+        return false;
+    }
+
+    private void readData(JsonReader in, Capabilities capabilities) throws IOException {
+        boolean versionRead = false;
+        boolean quicknotesRead = false;
+        in.beginObject();
+        while (in.hasNext()) {
+            String name = in.nextName();
+            if (versionRead && quicknotesRead) {
+                in.skipValue();
+            } else if (name.equals("version") && in.peek() == JsonToken.BEGIN_OBJECT) {
+                readVersion(in, capabilities);
+                versionRead = true;
+            } else if (name.equals("capabilities") && in.peek() == JsonToken.BEGIN_OBJECT) {
+                quicknotesRead = readCapabilities(in, capabilities);
+            } else {
+                in.skipValue();
+            }
+        }
+        in.endObject();
+    }
+
+    private void readVersion(JsonReader in, Capabilities capabilities) throws IOException {
+        in.beginObject();
+        while (in.hasNext()) {
+            if (in.nextName().equals("string") && in.peek() != JsonToken.NULL) {
+                capabilities.setNextcloudVersion(ModelTypeAdapters.readString(in));
+            } else {
+                in.skipValue();
+            }
+        }
+        in.endObject();
+    }
+
+    /**
+     * @return true if the quicknotes capabilities were found.
+     */
+    private boolean readCapabilities(JsonReader in, Capabilities capabilities) throws IOException {
+        boolean found = false;
+        in.beginObject();
+        while (in.hasNext()) {
+            String name = in.nextName();
+            if (!found && name.equals("quicknotes") && in.peek() == JsonToken.BEGIN_OBJECT) {
+                readQuicknotes(in, capabilities);
+                found = true;
+            } else {
+                in.skipValue();
+            }
+        }
+        in.endObject();
+        return found;
+    }
+
+    private void readQuicknotes(JsonReader in, Capabilities capabilities) throws IOException {
+        in.beginObject();
+        while (in.hasNext()) {
+            String name = in.nextName();
+            if (in.peek() == JsonToken.NULL) {
+                in.skipValue();
+            } else if (name.equals("version")) {
+                capabilities.setQuicknotesVersion(ModelTypeAdapters.readString(in));
+            } else if (name.equals("api_version")) {
+                capabilities.setQuicknotesApiVersion(ModelTypeAdapters.readString(in));
+            } else {
+                in.skipValue();
+            }
+        }
+        in.endObject();
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * Nextcloud Quicknotes Android client application.
+ *
+ * @copyright Copyright (c) 2020 Matias De lellis <mati86dl@gmail.com>
+ *
+ * @author Matias De lellis <mati86dl@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package ar.com.delellis.quicknotes.api.helper;
+
+import android.os.SystemClock;
+
+import androidx.annotation.VisibleForTesting;
+
+import java.io.IOException;
+import java.util.function.LongSupplier;
+
+/**
+ * Stops sending requests for a while once the server keeps failing, or
+ * right away when a request still gets 503 after its retries, as it does in
+ * maintenance mode. After the
+ * pause a single request probes the server before letting the rest through.
+ */
+public class CircuitBreaker {
+
+    public static class OpenException extends IOException {
+        public OpenException() {
+            super("Server unavailable, the request was not sent");
+        }
+    }
+
+    private enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private static final int FAILURE_THRESHOLD = 5;
+    private static final long OPEN_DELAY = 30 * 1000;
+    private static final long MAX_OPEN_DELAY = 5 * 60 * 1000;
+
+    private static final CircuitBreaker instance = new CircuitBreaker(SystemClock::elapsedRealtime);
+
+    private final LongSupplier clock;
+
+    private State state = State.CLOSED;
+    private int failureCount = 0;
+    private long openDelay = OPEN_DELAY;
+    private long openUntil = 0;
+
+    /**
+     * @param clock milliseconds since boot, SystemClock.elapsedRealtime() outside of tests.
+     */
+    @VisibleForTesting
+    CircuitBreaker(LongSupplier clock) {
+        this.clock = clock;
+    }
+
+    public static CircuitBreaker getInstance() {
+        return instance;
+    }
+
+    /**
+     * Forget the failures seen so far, e.g. of the account just switched away from.
+     */
+    public synchronized void reset() {
+        state = State.CLOSED;
+        failureCount = 0;
+        openDelay = OPEN_DELAY;
+        openUntil = 0;
+    }
+
+    /**
+     * @return true if the request can be sent now.
+     */
+    public synchronized boolean allowRequest() {
+        switch (state) {
+            case OPEN:
+                if (clock.getAsLong() < openUntil)
+                    return false;
+                state = State.HALF_OPEN;
+                return true;
+            case HALF_OPEN:
+                // Wait for the probe.
+                return false;
+            default:
+                return true;
+        }
+    }
+
+    public synchronized void onSuccess() {
+        state = State.CLOSED;
+        failureCount = 0;
+        openDelay = OPEN_DELAY;
+    }
+
+    /**
+     * @param unavailable true if the server answered 503.
+     */
+    public synchronized void onFailure(boolean unavailable) {
+        failureCount++;
+        if (state == State.HALF_OPEN) {
+            // The probe failed, wait longer each time.
+            openDelay = Math.min(openDelay * 2, MAX_OPEN_DELAY);
+            open();
+        } else if (unavailable || failureCount >= FAILURE_THRESHOLD) {
+            open();
+        }
+    }
+
+    /**
+     * The request ended without telling anything about the server, e.g. it
+     * was canceled. If it was the probe, the next request probes again.
+     */
+    public synchronized void onAborted() {
+        if (state == State.HALF_OPEN) {
+            state = State.OPEN;
+            openUntil = 0;
+        }
+    }
+
+    public synchronized boolean isOpen() {
+        return state != State.CLOSED;
+    }
+
+    private void open() {
+        state = State.OPEN;
+        openUntil = clock.getAsLong() + openDelay;
+    }
+}
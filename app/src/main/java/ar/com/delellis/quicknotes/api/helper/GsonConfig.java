@@ -23,60 +23,33 @@ package ar.com.delellis.quicknotes.api.helper;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
-import com.google.gson.JsonDeserializationContext;
-import com.google.gson.JsonDeserializer;
-import com.google.gson.JsonElement;
-import com.google.gson.JsonObject;
-import com.google.gson.JsonParseException;
-
-import java.lang.reflect.Type;
 
+import ar.com.delellis.quicknotes.model.Attachment;
 import ar.com.delellis.quicknotes.model.Capabilities;
+import ar.com.delellis.quicknotes.model.Note;
+import ar.com.delellis.quicknotes.model.Share;
+import ar.com.delellis.quicknotes.model.Tag;
 
 public class GsonConfig {
 
-    JsonDeserializer<Capabilities> capabilitiesJsonDeserializer = new JsonDeserializer<Capabilities>() {
-        @Override
-        public Capabilities deserialize(JsonElement json, Type typeOfT, JsonDeserializationContext context) throws JsonParseException {
-            Capabilities capabilities = new Capabilities();
-            JsonObject jsonCapabilities = json.getAsJsonObject();
-            if (jsonCapabilities.has("ocs")) {
-                JsonObject ocs = jsonCapabilities.getAsJsonObject("ocs");
-                if (ocs.has("meta")) {
-                    int statuscode = ocs.getAsJsonObject("meta").get("statuscode").getAsInt();
-                    capabilities.setMaintenanceEnabled(statuscode == 503);
-                    if (capabilities.isMaintenanceEnabled()) {
-                        return capabilities;
-                    }
-                }
-                if (ocs.has("data")) {
-                    JsonObject data = ocs.getAsJsonObject("data");
-                    if (data.has("version")) {
-                        JsonObject version = data.getAsJsonObject("version");
-                        capabilities.setNextcloudVersion(version.get("string").getAsString());
-                    }
-                    if (data.has("capabilities")) {
-                        JsonObject caps = data.getAsJsonObject("capabilities");
-                        if (caps.has("quicknotes")) {
-                            JsonObject quicknotes = caps.getAsJsonObject("quicknotes");
-                            if (quicknotes.has("version")) {
-                                capabilities.setQuicknotesVersion(quicknotes.get("version").getAsString());
-                            }
-                            if (quicknotes.has("api_version")) {
-                                capabilities.setQuicknotesApiVersion(quicknotes.get("api_version").getAsString());
-                            }
-                        }
-                    }
-                }
-            }
-            return capabilities;
-        }
-    };
+    private final StringPool stringPool;
+
+    public GsonConfig() {
+        this(new StringPool());
+    }
+
+    public GsonConfig(StringPool stringPool) {
+        this.stringPool = stringPool;
+    }
 
     public Gson create() {
         GsonBuilder gsonBuilder = new GsonBuilder();
         gsonBuilder.setLenient();
-        gsonBuilder.registerTypeAdapter(Capabilities.class, capabilitiesJsonDeserializer);
+        gsonBuilder.registerTypeAdapter(Capabilities.class, new CapabilitiesTypeAdapter());
+        gsonBuilder.registerTypeAdapter(Note.class, new ModelTypeAdapters.NoteTypeAdapter(stringPool));
+        gsonBuilder.registerTypeAdapter(Tag.class, new ModelTypeAdapters.TagTypeAdapter(stringPool));
+        gsonBuilder.registerTypeAdapter(Share.class, new ModelTypeAdapters.ShareTypeAdapter(stringPool));
+        gsonBuilder.registerTypeAdapter(Attachment.class, new ModelTypeAdapters.AttachmentTypeAdapter());
         return gsonBuilder.create();
     }
 }
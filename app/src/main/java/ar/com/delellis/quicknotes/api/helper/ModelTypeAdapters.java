@@ -0,0 +1,346 @@
+/*
+ * Nextcloud Quicknotes Android client application.
+ *
+ * @copyright Copyright (c) 2020 Matias De lellis <mati86dl@gmail.com>
+ *
+ * @author Matias De lellis <mati86dl@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package ar.com.delellis.quicknotes.api.helper;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import ar.com.delellis.quicknotes.model.Attachment;
+import ar.com.delellis.quicknotes.model.Note;
+import ar.com.delellis.quicknotes.model.Share;
+import ar.com.delellis.quicknotes.model.Tag;
+
+/**
+ * Streaming type adapters of the models, reading straight from the JsonReader
+ * without reflection. They use the same names and accept the same values as
+ * the @SerializedName fields of the models. Values that repeat across notes
+ * are canonicalized through the StringPool of the account.
+ */
+public class ModelTypeAdapters {
+
+    public static class NoteTypeAdapter extends TypeAdapter<Note> {
+        private final StringPool stringPool;
+        private final TagTypeAdapter tagAdapter;
+        private final ShareTypeAdapter shareAdapter;
+        private final AttachmentTypeAdapter attachmentAdapter = new AttachmentTypeAdapter();
+
+        public NoteTypeAdapter(StringPool stringPool) {
+            this.stringPool = stringPool;
+            this.tagAdapter = new TagTypeAdapter(stringPool);
+            this.shareAdapter = new ShareTypeAdapter(stringPool);
+        }
+
+        @Override
+        public void write(JsonWriter out, Note note) throws IOException {
+            if (note == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginObject();
+            out.name("id").value(note.getId());
+            out.name("title").value(note.getTitle());
+            out.name("content").value(note.getContent());
+            out.name("isPinned").value(note.getIsPinned());
+            out.name("color").value(note.getColor());
+            out.name("timestamp").value(note.getTimestamp());
+            writeList(out, "sharedWith", note.getShareWith(), shareAdapter);
+            writeList(out, "sharedBy", note.getShareBy(), shareAdapter);
+            writeList(out, "tags", note.getTags(), tagAdapter);
+            writeList(out, "attachments", note.getAttachtments(), attachmentAdapter);
+            out.endObject();
+        }
+
+        @Override
+        public Note read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            Note note = new Note();
+            in.beginObject();
+            while (in.hasNext()) {
+                String name = in.nextName();
+                if (in.peek() == JsonToken.NULL) {
+                    in.nextNull();
+                    continue;
+                }
+                switch (name) {
+                    case "id":
+                        note.setId(in.nextInt());
+                        break;
+                    case "title":
+                        note.setTitle(readString(in));
+                        break;
+                    case "content":
+                        note.setContent(readString(in));
+                        break;
+                    case "isPinned":
+                        note.setIsPinned(readBoolean(in));
+                        break;
+                    case "color":
+                        note.setColor(stringPool.intern(readString(in)));
+                        break;
+                    case "timestamp":
+                        note.setTimestamp(in.nextInt());
+                        break;
+                    case "sharedWith":
+                        note.setShareWith(readList(in, shareAdapter));
+                        break;
+                    case "sharedBy":
+                        note.setShareBy(readList(in, shareAdapter));
+                        break;
+                    case "tags":
+                        note.setTags(readList(in, tagAdapter));
+                        break;
+                    case "attachments":
+                        note.setAttachments(readList(in, attachmentAdapter));
+                        break;
+                    default:
+                        in.skipValue();
+                }
+            }
+            in.endObject();
+            return note;
+        }
+    }
+
+    public static class TagTypeAdapter extends TypeAdapter<Tag> {
+        private final StringPool stringPool;
+
+        public TagTypeAdapter(StringPool stringPool) {
+            this.stringPool = stringPool;
+        }
+
+        @Override
+        public void write(JsonWriter out, Tag tag) throws IOException {
+            if (tag == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginObject();
+            out.name("id").value(tag.getId());
+            out.name("name").value(tag.getName());
+            out.endObject();
+        }
+
+        @Override
+        public Tag read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            Tag tag = new Tag();
+            in.beginObject();
+            while (in.hasNext()) {
+                String name = in.nextName();
+                if (in.peek() == JsonToken.NULL) {
+                    in.nextNull();
+                    continue;
+                }
+                switch (name) {
+                    case "id":
+                        tag.setId(in.nextInt());
+                        break;
+                    case "name":
+                        tag.setName(stringPool.intern(readString(in)));
+                        break;
+                    default:
+                        in.skipValue();
+                }
+            }
+            in.endObject();
+            return tag;
+        }
+    }
+
+    public static class ShareTypeAdapter extends TypeAdapter<Share> {
+        private final StringPool stringPool;
+
+        public ShareTypeAdapter(StringPool stringPool) {
+            this.stringPool = stringPool;
+        }
+
+        @Override
+        public void write(JsonWriter out, Share share) throws IOException {
+            if (share == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginObject();
+            out.name("id").value(share.getId());
+            out.name("user_id").value(share.getUserId());
+            out.name("note_id").value(share.getNoteId());
+            out.name("shared_user").value(share.getSharedUser());
+            out.name("shared_group").value(share.getSharedGroup());
+            out.endObject();
+        }
+
+        @Override
+        public Share read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            Share share = new Share();
+            in.beginObject();
+            while (in.hasNext()) {
+                String name = in.nextName();
+                if (in.peek() == JsonToken.NULL) {
+                    in.nextNull();
+                    continue;
+                }
+                switch (name) {
+                    case "id":
+                        share.setId(in.nextInt());
+                        break;
+                    case "user_id":
+                        share.setUserId(stringPool.intern(readString(in)));
+                        break;
+                    case "note_id":
+                        share.setNoteId(readString(in));
+                        break;
+                    case "shared_user":
+                        share.setSharedUser(stringPool.intern(readString(in)));
+                        break;
+                    case "shared_group":
+                        share.setSharedGroup(stringPool.intern(readString(in)));
+                        break;
+                    default:
+                        in.skipValue();
+                }
+            }
+            in.endObject();
+            return share;
+        }
+    }
+
+    public static class AttachmentTypeAdapter extends TypeAdapter<Attachment> {
+        @Override
+        public void write(JsonWriter out, Attachment attachment) throws IOException {
+            if (attachment == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginObject();
+            out.name("id").value(attachment.getId());
+            out.name("note_id").value(attachment.getNoteId());
+            out.name("file_id").value(attachment.getFileId());
+            out.name("create_at").value(attachment.getCreatedAt());
+            out.name("preview_url").value(attachment.getPreviewUrl());
+            out.name("redirect_url").value(attachment.getRedirectUrl());
+            out.name("deep_link_url").value(attachment.getDeepLinkUrl());
+            out.endObject();
+        }
+
+        @Override
+        public Attachment read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            Attachment attachment = new Attachment();
+            in.beginObject();
+            while (in.hasNext()) {
+                String name = in.nextName();
+                if (in.peek() == JsonToken.NULL) {
+                    in.nextNull();
+                    continue;
+                }
+                switch (name) {
+                    case "id":
+                        attachment.setId(in.nextInt());
+                        break;
+                    case "note_id":
+                        attachment.setNoteId(readString(in));
+                        break;
+                    case "file_id":
+                        attachment.setFileId(readString(in));
+                        break;
+                    case "create_at":
+                        attachment.setCreatedAt(readString(in));
+                        break;
+                    case "preview_url":
+                        attachment.setPreviewUrl(readString(in));
+                        break;
+                    case "redirect_url":
+                        attachment.setRedirectUrl(readString(in));
+                        break;
+                    case "deep_link_url":
+                        attachment.setDeepLinkUrl(readString(in));
+                        break;
+                    default:
+                        in.skipValue();
+                }
+            }
+            in.endObject();
+            return attachment;
+        }
+    }
+
+    /**
+     * Read a string as Gson does, also accepting numbers and booleans.
+     */
+    static String readString(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.BOOLEAN) {
+            return Boolean.toString(in.nextBoolean());
+        }
+        return in.nextString();
+    }
+
+    /**
+     * Read a boolean as Gson does, also accepting strings.
+     */
+    static boolean readBoolean(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.STRING) {
+            return Boolean.parseBoolean(in.nextString());
+        }
+        return in.nextBoolean();
+    }
+
+    private static <T> List<T> readList(JsonReader in, TypeAdapter<T> adapter) throws IOException {
+        List<T> list = new ArrayList<>();
+        in.beginArray();
+        while (in.hasNext()) {
+            list.add(adapter.read(in));
+        }
+        in.endArray();
+        return list;
+    }
+
+    private static <T> void writeList(JsonWriter out, String name, List<T> list, TypeAdapter<T> adapter) throws IOException {
+        if (list == null) {
+            out.name(name).nullValue();
+            return;
+        }
+        out.name(name).beginArray();
+        for (T item: list) {
+            adapter.write(out, item);
+        }
+        out.endArray();
+    }
+}
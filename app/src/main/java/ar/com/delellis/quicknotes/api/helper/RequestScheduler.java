@@ -0,0 +1,156 @@
+/*
+ * Nextcloud Quicknotes Android client application.
+ *
+ * @copyright Copyright (c) 2020 Matias De lellis <mati86dl@gmail.com>
+ *
+ * @author Matias De lellis <mati86dl@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package ar.com.delellis.quicknotes.api.helper;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.VisibleForTesting;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+
+/**
+ * Orders the calls to the QuicknotesAPI by priority, so a save by the user
+ * does not wait behind a refresh or an upload. Each priority has its own
+ * slots, so interactive calls never queue behind the others. Running calls
+ * are never canceled to make room, since one that already reached the
+ * server could not be sent again safely.
+ */
+public class RequestScheduler {
+
+    public enum Priority {
+        // Saves and deletes the user waits for.
+        INTERACTIVE(2),
+        // The notes list on screen and uploads the user started.
+        VISIBLE(2);
+
+        private final int maxConcurrent;
+
+        Priority(int maxConcurrent) {
+            this.maxConcurrent = maxConcurrent;
+        }
+    }
+
+    private static final RequestScheduler instance = new RequestScheduler();
+
+    private final Map<Priority, ArrayDeque<Task<?>>> queues = new EnumMap<>(Priority.class);
+    private final List<Task<?>> running = new ArrayList<>();
+
+    @VisibleForTesting
+    RequestScheduler() {
+        for (Priority priority: Priority.values()) {
+            queues.put(priority, new ArrayDeque<>());
+        }
+    }
+
+    public static RequestScheduler getInstance() {
+        return instance;
+    }
+
+    /**
+     * Enqueue the call to be sent when its priority allows it.
+     * @param call call to send.
+     * @param priority priority of the call.
+     * @param callback called on a background thread.
+     */
+    public <T> void enqueue(@NonNull Call<T> call, @NonNull Priority priority, @NonNull Callback<T> callback) {
+        List<Task<?>> started;
+        synchronized (this) {
+            queues.get(priority).add(new Task<>(call, priority, callback));
+            started = schedule();
+        }
+        for (Task<?> task: started) {
+            task.start();
+        }
+    }
+
+    /**
+     * Take the calls that can start now, by priority. Called with the lock held.
+     * @return the tasks to start once the lock is released.
+     */
+    private List<Task<?>> schedule() {
+        List<Task<?>> started = new ArrayList<>();
+        for (Priority priority: Priority.values()) {
+            ArrayDeque<Task<?>> queue = queues.get(priority);
+            while (!queue.isEmpty() && countRunning(priority) < priority.maxConcurrent) {
+                Task<?> task = queue.poll();
+                running.add(task);
+                started.add(task);
+            }
+        }
+        return started;
+    }
+
+    private int countRunning(Priority priority) {
+        int count = 0;
+        for (Task<?> task: running) {
+            if (task.priority == priority)
+                count++;
+        }
+        return count;
+    }
+
+    private void onFinished(Task<?> task) {
+        List<Task<?>> started;
+        synchronized (this) {
+            running.remove(task);
+            started = schedule();
+        }
+        for (Task<?> next: started) {
+            next.start();
+        }
+    }
+
+    private class Task<T> implements Callback<T> {
+        private final Call<T> call;
+        private final Priority priority;
+        private final Callback<T> callback;
+
+        Task(Call<T> call, Priority priority, Callback<T> callback) {
+            this.call = call;
+            this.priority = priority;
+            this.callback = callback;
+        }
+
+        void start() {
+            call.enqueue(this);
+        }
+
+        @Override
+        public void onResponse(@NonNull Call<T> call, @NonNull Response<T> response) {
+            onFinished(this);
+            callback.onResponse(call, response);
+        }
+
+        @Override
+        public void onFailure(@NonNull Call<T> call, @NonNull Throwable t) {
+            onFinished(this);
+            callback.onFailure(call, t);
+        }
+    }
+}
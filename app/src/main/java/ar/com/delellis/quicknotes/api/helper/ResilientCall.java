@@ -0,0 +1,151 @@
+/*
+ * Nextcloud Quicknotes Android client application.
+ *
+ * @copyright Copyright (c) 2020 Matias De lellis <mati86dl@gmail.com>
+ *
+ * @author Matias De lellis <mati86dl@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package ar.com.delellis.quicknotes.api.helper;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+
+/**
+ * Enqueue calls of the QuicknotesAPI on the RequestScheduler, retrying
+ * transient failures according to a RetryPolicy, and failing fast while the
+ * CircuitBreaker is open.
+ */
+public class ResilientCall {
+    private static final String TAG = ResilientCall.class.getCanonicalName();
+
+    private static final ScheduledExecutorService retryExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "ApiRetry");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private ResilientCall() {
+    }
+
+    /**
+     * Enqueue the call, calling back once with the final response or failure.
+     * @param call call to send, cloned to retry it.
+     * @param policy retries allowed for this call.
+     * @param priority priority of each attempt on the RequestScheduler.
+     * @param callback called on a background thread.
+     */
+    public static <T> void enqueue(@NonNull Call<T> call, @NonNull RetryPolicy policy, @NonNull RequestScheduler.Priority priority, @NonNull Callback<T> callback) {
+        new Attempts<>(policy, priority, callback).send(call, 1);
+    }
+
+    private static class Attempts<T> {
+        private final RetryPolicy policy;
+        private final RequestScheduler.Priority priority;
+        private final Callback<T> callback;
+        private final CircuitBreaker circuitBreaker = CircuitBreaker.getInstance();
+
+        Attempts(RetryPolicy policy, RequestScheduler.Priority priority, Callback<T> callback) {
+            this.policy = policy;
+            this.priority = priority;
+            this.callback = callback;
+        }
+
+        void send(Call<T> call, int attempt) {
+            // Only the first attempt asks the breaker. The retries are part of
+            // the same request, and its final outcome is what the breaker learns.
+            if (attempt == 1 && !circuitBreaker.allowRequest()) {
+                callback.onFailure(call, new CircuitBreaker.OpenException());
+                return;
+            }
+
+            RequestScheduler.getInstance().enqueue(call, priority, new Callback<T>() {
+                @Override
+                public void onResponse(@NonNull Call<T> call, @NonNull Response<T> response) {
+                    if (response.isSuccessful()) {
+                        circuitBreaker.onSuccess();
+                    } else if (policy.canRetry(response.code())) {
+                        if (retry(call, attempt))
+                            return;
+                        circuitBreaker.onFailure(response.code() == HttpURLConnection.HTTP_UNAVAILABLE);
+                    } else {
+                        // The server is up, the request was just rejected.
+                        circuitBreaker.onSuccess();
+                    }
+                    callback.onResponse(call, response);
+                }
+
+                @Override
+                public void onFailure(@NonNull Call<T> call, @NonNull Throwable t) {
+                    // Every outcome must reach the breaker, or a probe would keep it half open.
+                    if (isCanceled(call)) {
+                        circuitBreaker.onAborted();
+                    } else if (t instanceof IOException) {
+                        // Only network errors are transient, not parse errors.
+                        if (policy.isIdempotent() && retry(call, attempt))
+                            return;
+                        circuitBreaker.onFailure(false);
+                    } else {
+                        // The server answered, the response just could not be read.
+                        circuitBreaker.onSuccess();
+                    }
+                    callback.onFailure(call, t);
+                }
+            });
+        }
+
+        /**
+         * @return true if a new attempt was scheduled.
+         */
+        private boolean retry(Call<T> call, int attempt) {
+            if (attempt >= policy.getMaxAttempts() || isCanceled(call))
+                return false;
+
+            // Calls of the SSO library may not support cloning, then just fail.
+            Call<T> nextCall;
+            try {
+                nextCall = call.clone();
+            } catch (RuntimeException e) {
+                Log.w(TAG, "Can't retry the request: " + e);
+                return false;
+            }
+
+            long delay = policy.getDelay(attempt);
+            Log.d(TAG, "Retrying request, attempt " + (attempt + 1) + " in " + delay + " ms");
+            retryExecutor.schedule(() -> send(nextCall, attempt + 1), delay, TimeUnit.MILLISECONDS);
+            return true;
+        }
+    }
+
+    private static boolean isCanceled(Call<?> call) {
+        try {
+            return call.isCanceled();
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+}
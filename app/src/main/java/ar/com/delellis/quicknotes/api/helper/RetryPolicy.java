@@ -0,0 +1,83 @@
+/*
+ * Nextcloud Quicknotes Android client application.
+ *
+ * @copyright Copyright (c) 2020 Matias De lellis <mati86dl@gmail.com>
+ *
+ * @author Matias De lellis <mati86dl@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package ar.com.delellis.quicknotes.api.helper;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * How many times and how often a failed request is retried. Requests that
+ * are not idempotent are only retried when the server refused them without
+ * processing, i.e. answered 429 or 503, never after a network failure.
+ */
+public class RetryPolicy {
+
+    // GET, PUT and DELETE of the notes can be repeated safely.
+    public static final RetryPolicy IDEMPOTENT = new RetryPolicy(4, 500, 8000, true);
+    // POST creates a new note or attachment each time.
+    public static final RetryPolicy NOT_IDEMPOTENT = new RetryPolicy(3, 1000, 8000, false);
+
+    private final int maxAttempts;
+    private final long baseDelay;
+    private final long maxDelay;
+    private final boolean idempotent;
+
+    /**
+     * @param maxAttempts total attempts, including the first one.
+     * @param baseDelay milliseconds of the first backoff, doubled on each retry.
+     * @param maxDelay maximum backoff in milliseconds.
+     * @param idempotent true if the request can be repeated after a network failure.
+     */
+    public RetryPolicy(int maxAttempts, long baseDelay, long maxDelay, boolean idempotent) {
+        this.maxAttempts = maxAttempts;
+        this.baseDelay = baseDelay;
+        this.maxDelay = maxDelay;
+        this.idempotent = idempotent;
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    public boolean isIdempotent() {
+        return idempotent;
+    }
+
+    /**
+     * @param code HTTP status of the response.
+     * @return true if the response may succeed if requested again.
+     */
+    public boolean canRetry(int code) {
+        if (code == 429 || code == 503)
+            return true;
+        return idempotent && (code == 408 || code == 500 || code == 502 || code == 504);
+    }
+
+    /**
+     * Exponential backoff with full jitter, so clients failing together do not retry together.
+     * @param attempt attempts already made, starting at 1.
+     * @return milliseconds to wait before the next attempt.
+     */
+    public long getDelay(int attempt) {
+        long delay = Math.min(maxDelay, baseDelay << Math.min(attempt - 1, 16));
+        return ThreadLocalRandom.current().nextLong(delay + 1);
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Nextcloud Quicknotes Android client application.
+ *
+ * @copyright Copyright (c) 2020 Matias De lellis <mati86dl@gmail.com>
+ *
+ * @author Matias De lellis <mati86dl@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package ar.com.delellis.quicknotes.api.helper;
+
+import androidx.annotation.Nullable;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Bounded pool of canonical strings of one account, so values repeated on
+ * many notes, as colors, tag names or user ids, share a single instance
+ * instead of one per parsed note.
+ */
+public class StringPool {
+
+    // Enough for the colors, tags and users of a big account.
+    private static final int MAX_ENTRIES = 2048;
+    // Longer values are unlikely to repeat, so they are not worth a lookup.
+    private static final int MAX_LENGTH = 128;
+
+    private static StringPool accountPool;
+    private static String poolAccount;
+
+    private final Map<String, String> pool = new LinkedHashMap<String, String>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+
+    private int hitCount = 0;
+    private int missCount = 0;
+
+    /**
+     * @param account name of the account being parsed.
+     * @return the pool of the account, dropping the previous one if the account changed.
+     */
+    public static synchronized StringPool forAccount(@Nullable String account) {
+        if (accountPool == null || !Objects.equals(account, poolAccount)) {
+            accountPool = new StringPool();
+            poolAccount = account;
+        }
+        return accountPool;
+    }
+
+    /**
+     * @param value string just parsed.
+     * @return the pooled instance equal to value, or value itself.
+     */
+    public synchronized String intern(@Nullable String value) {
+        if (value == null || value.length() > MAX_LENGTH)
+            return value;
+
+        String canonical = pool.get(value);
+        if (canonical != null) {
+            hitCount++;
+            return canonical;
+        }
+        missCount++;
+        pool.put(value, value);
+        return value;
+    }
+
+    public synchronized String getStats() {
+        return String.format("String pool: %d strings, %d hits, %d misses", pool.size(), hitCount, missCount);
+    }
+}
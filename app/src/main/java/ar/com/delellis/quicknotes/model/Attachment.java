@@ -21,13 +21,16 @@
 
 package ar.com.delellis.quicknotes.model;
 
+import android.os.Parcel;
+import android.os.Parcelable;
+
 import com.google.gson.annotations.Expose;
 import com.google.gson.annotations.SerializedName;
 
 import java.io.Serializable;
 import java.util.Objects;
 
-public class Attachment implements Serializable {
+public class Attachment implements Serializable, Parcelable {
     @Expose
     @SerializedName("id") private int id;
 
@@ -49,6 +52,34 @@ public class Attachment implements Serializable {
     @Expose
     @SerializedName("deep_link_url") private String deep_link_url;
 
+    public Attachment() {
+
+    }
+
+    /**
+     * Copy constructor.
+     * @param other attachment to copy
+     */
+    public Attachment(Attachment other) {
+        this.id = other.id;
+        this.note_id = other.note_id;
+        this.file_id = other.file_id;
+        this.created_at = other.created_at;
+        this.preview_url = other.preview_url;
+        this.redirect_url = other.redirect_url;
+        this.deep_link_url = other.deep_link_url;
+    }
+
+    protected Attachment(Parcel in) {
+        id = in.readInt();
+        note_id = in.readString();
+        file_id = in.readString();
+        created_at = in.readString();
+        preview_url = in.readString();
+        redirect_url = in.readString();
+        deep_link_url = in.readString();
+    }
+
     public int getId() {
         return id;
     }
@@ -119,4 +150,32 @@ public class Attachment implements Serializable {
         Attachment oAttachment = (Attachment) obj;
         return Objects.equals(this.file_id, oAttachment.getFileId());
     }
+
+    public static final Creator<Attachment> CREATOR = new Creator<Attachment>() {
+        @Override
+        public Attachment createFromParcel(Parcel in) {
+            return new Attachment(in);
+        }
+
+        @Override
+        public Attachment[] newArray(int size) {
+            return new Attachment[size];
+        }
+    };
+
+    @Override
+    public int describeContents() {
+        return 0;
+    }
+
+    @Override
+    public void writeToParcel(Parcel dest, int flags) {
+        dest.writeInt(id);
+        dest.writeString(note_id);
+        dest.writeString(file_id);
+        dest.writeString(created_at);
+        dest.writeString(preview_url);
+        dest.writeString(redirect_url);
+        dest.writeString(deep_link_url);
+    }
 }
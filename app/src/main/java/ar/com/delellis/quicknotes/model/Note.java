@@ -21,18 +21,24 @@
 
 package ar.com.delellis.quicknotes.model;
 
-import com.google.gson.Gson;
+import android.os.Parcel;
+import android.os.Parcelable;
+
 import com.google.gson.annotations.Expose;
 import com.google.gson.annotations.SerializedName;
 
 import org.jetbrains.annotations.NotNull;
 
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Objects;
 
-public class Note implements Serializable {
+import ar.com.delellis.quicknotes.util.HashUtil;
+import ar.com.delellis.quicknotes.util.HtmlUtil;
+
+public class Note implements Serializable, Parcelable {
     @Expose
     @SerializedName("id")
     private int id;
@@ -73,6 +79,33 @@ public class Note implements Serializable {
     @SerializedName("attachments")
     private List<Attachment> attachments;
 
+    // Sanitized forms of title and content, computed once per sanitizer version.
+    private transient String clean_title;
+    private transient String clean_content;
+    private transient String plain_title;
+    private transient String plain_content;
+    private transient int sanitizer_version = 0;
+
+    // Fingerprint of title, content, pin and color. Zero until computed.
+    private transient long fingerprint = 0;
+
+    public Note() {
+
+    }
+
+    protected Note(Parcel in) {
+        id = in.readInt();
+        title = in.readString();
+        content = in.readString();
+        is_pinned = in.readByte() != 0;
+        color = in.readString();
+        timestamp = in.readInt();
+        share_with = in.createTypedArrayList(Share.CREATOR);
+        share_by = in.createTypedArrayList(Share.CREATOR);
+        tags = in.createTypedArrayList(Tag.CREATOR);
+        attachments = in.createTypedArrayList(Attachment.CREATOR);
+    }
+
     public int getId() {
         return id;
     }
@@ -87,6 +120,8 @@ public class Note implements Serializable {
 
     public void setTitle(String title) {
         this.title = title;
+        this.sanitizer_version = 0;
+        this.fingerprint = 0;
     }
 
     public String getContent() {
@@ -95,6 +130,8 @@ public class Note implements Serializable {
 
     public void setContent(String content) {
         this.content = content;
+        this.sanitizer_version = 0;
+        this.fingerprint = 0;
     }
 
     public boolean getIsPinned() {
@@ -103,6 +140,7 @@ public class Note implements Serializable {
 
     public void setIsPinned(boolean is_pinned) {
         this.is_pinned = is_pinned;
+        this.fingerprint = 0;
     }
 
     public String getColor() {
@@ -111,6 +149,7 @@ public class Note implements Serializable {
 
     public void setColor(String color) {
         this.color = color;
+        this.fingerprint = 0;
     }
 
     public int getTimestamp() {
@@ -153,11 +192,45 @@ public class Note implements Serializable {
         this.attachments = attachments;
     }
 
+    /**
+     * Sanitize title and content unless it was already done with the current sanitizer.
+     */
+    public synchronized void sanitize() {
+        if (sanitizer_version == HtmlUtil.SANITIZER_VERSION)
+            return;
+
+        clean_title = title != null ? HtmlUtil.cleanString(title) : "";
+        clean_content = content != null ? HtmlUtil.cleanHtml(content) : "";
+        plain_title = title != null ? HtmlUtil.toPlainText(title) : "";
+        plain_content = content != null ? HtmlUtil.toPlainText(content) : "";
+        sanitizer_version = HtmlUtil.SANITIZER_VERSION;
+    }
+
+    public synchronized String getCleanTitle() {
+        sanitize();
+        return clean_title;
+    }
+
+    public synchronized String getCleanContent() {
+        sanitize();
+        return clean_content;
+    }
+
+    public synchronized String getPlainTitle() {
+        sanitize();
+        return plain_title;
+    }
+
+    public synchronized String getPlainContent() {
+        sanitize();
+        return plain_content;
+    }
+
     public boolean getIsShared() {
         return share_by != null && !share_by.isEmpty();
     }
 
-    public static Comparator<Note> ByTitleAZ = (note, t1) -> note.title.compareTo(t1.title);
+    public static Comparator<Note> ByTitleAZ = (note, t1) -> note.getPlainTitle().compareTo(t1.getPlainTitle());
 
     public static Comparator<Note> ByLastUpdated = (note, t1) -> t1.timestamp - note.timestamp;
 
@@ -174,21 +247,53 @@ public class Note implements Serializable {
         return 0;
     };
 
+    /**
+     * 64 bits FNV-1a fingerprint of title, content, pin and color, computed
+     * once until any of them changes. The lists are left out since they are
+     * edited in place by the adapters, but they are small to compare anyway.
+     */
+    public synchronized long getFingerprint() {
+        if (fingerprint == 0) {
+            long hash = HashUtil.FNV_OFFSET_BASIS;
+            hash = fingerprint(hash, title);
+            hash = fingerprint(hash, content);
+            hash = fingerprint(hash, color);
+            hash = HashUtil.fnv1a(hash, is_pinned ? 1 : 0);
+            fingerprint = hash != 0 ? hash : 1;
+        }
+        return fingerprint;
+    }
+
+    private static long fingerprint(long hash, String value) {
+        if (value == null) {
+            // Keep null apart from the empty string.
+            return HashUtil.fnv1a(hash, 0xff);
+        }
+        hash = HashUtil.fnv1a(hash, value);
+        // Terminate the string, so "ab" + "c" differs from "a" + "bc".
+        return HashUtil.fnv1a(hash, value.length());
+    }
+
     @Override
     public int hashCode() {
-        return Objects.hash(id, title, content, is_pinned, color, timestamp, share_with, share_by, tags, attachments);
+        long hash = getFingerprint();
+        return 31 * (int) (hash ^ (hash >>> 32)) + Objects.hash(share_with, share_by, tags, attachments);
     }
 
     /**
      * Compare specific fields from two Note elements.
      * If there is any difference or fields are present in one,
      * but not the other objects, this will return true.
+     * The fingerprints are compared first, so the full title and content
+     * are only compared when they are probably equal.
      *
      * @param obj Note to compare with
      * @return true if there is no difference in the relevant fields
      */
     @Override
     public boolean equals(Object obj) {
+        if (obj == this)
+            return true;
         if (obj == null)
             return false;
         if (getClass() != obj.getClass())
@@ -196,6 +301,9 @@ public class Note implements Serializable {
 
         Note other = (Note) obj;
 
+        if (getFingerprint() != other.getFingerprint())
+            return false;
+
         return ((Objects.equals(other.getTitle(), title)) &&
                 (Objects.equals(other.getContent(), content)) &&
                 (is_pinned == other.getIsPinned()) &&
@@ -207,14 +315,77 @@ public class Note implements Serializable {
     }
 
     /**
-     * serialize the object and create a new object from the serialization string
+     * Copy the note and its lists, sharing only the immutable strings.
      * @return a new Note object which is a copy from this but no reference
      */
     @NotNull
     @Override
-    public Note clone() {
-        Gson gson = new Gson(); // We create a new instance every time to save some memory... :)
-        return gson.fromJson(gson.toJson(this), Note.class);
+    public synchronized Note clone() {
+        Note copy = new Note();
+        copy.id = id;
+        copy.title = title;
+        copy.content = content;
+        copy.is_pinned = is_pinned;
+        copy.color = color;
+        copy.timestamp = timestamp;
+        copy.share_with = copyShares(share_with);
+        copy.share_by = copyShares(share_by);
+        if (tags != null) {
+            copy.tags = new ArrayList<>(tags.size());
+            for (Tag tag: tags) copy.tags.add(tag != null ? new Tag(tag) : null);
+        }
+        if (attachments != null) {
+            copy.attachments = new ArrayList<>(attachments.size());
+            for (Attachment attachment: attachments) copy.attachments.add(attachment != null ? new Attachment(attachment) : null);
+        }
+
+        // Same content, so the sanitized forms are still valid.
+        copy.clean_title = clean_title;
+        copy.clean_content = clean_content;
+        copy.plain_title = plain_title;
+        copy.plain_content = plain_content;
+        copy.sanitizer_version = sanitizer_version;
+        copy.fingerprint = fingerprint;
+        return copy;
+    }
+
+    private static List<Share> copyShares(List<Share> shares) {
+        if (shares == null)
+            return null;
+
+        List<Share> copy = new ArrayList<>(shares.size());
+        for (Share share: shares) copy.add(share != null ? new Share(share) : null);
+        return copy;
+    }
+
+    public static final Creator<Note> CREATOR = new Creator<Note>() {
+        @Override
+        public Note createFromParcel(Parcel in) {
+            return new Note(in);
+        }
+
+        @Override
+        public Note[] newArray(int size) {
+            return new Note[size];
+        }
+    };
+
+    @Override
+    public int describeContents() {
+        return 0;
     }
 
+    @Override
+    public void writeToParcel(Parcel dest, int flags) {
+        dest.writeInt(id);
+        dest.writeString(title);
+        dest.writeString(content);
+        dest.writeByte((byte) (is_pinned ? 1 : 0));
+        dest.writeString(color);
+        dest.writeInt(timestamp);
+        dest.writeTypedList(share_with);
+        dest.writeTypedList(share_by);
+        dest.writeTypedList(tags);
+        dest.writeTypedList(attachments);
+    }
 }
@@ -0,0 +1,307 @@
+/*
+ * Nextcloud Quicknotes Android client application.
+ *
+ * @copyright Copyright (c) 2020 Matias De lellis <mati86dl@gmail.com>
+ *
+ * @author Matias De lellis <mati86dl@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package ar.com.delellis.quicknotes.model;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * In process store of the downloaded notes and tags of the current account,
+ * shared by the activities so the intents just carry note ids. Local changes
+ * are applied here right away and the listeners notified, so the list does
+ * not need to be downloaded again.
+ *
+ * A download started before a local change does not have it, so the local
+ * changes are applied again over the downloaded notes until a download
+ * started after the server confirmed them arrives.
+ */
+public class NoteRepository {
+
+    public interface OnChangeListener {
+        /**
+         * Called on the thread that changed the notes.
+         */
+        void onNotesChanged();
+    }
+
+    /**
+     * A note changed or removed locally.
+     */
+    private static class LocalChange {
+        // The note to show, or null if removed.
+        @Nullable
+        final Note note;
+        // Version when the server confirmed the change, or -1 while in flight.
+        final long confirmedVersion;
+
+        LocalChange(@Nullable Note note, long confirmedVersion) {
+            this.note = note;
+            this.confirmedVersion = confirmedVersion;
+        }
+    }
+
+    private static final NoteRepository instance = new NoteRepository();
+
+    private String account = null;
+    private final Map<Integer, Note> notes = new LinkedHashMap<>();
+    private final List<Tag> tags = new ArrayList<>();
+
+    private final Map<Integer, LocalChange> localChanges = new HashMap<>();
+    // Increased on each local change or confirmation.
+    private long version = 0;
+
+    private final List<OnChangeListener> listeners = new CopyOnWriteArrayList<>();
+
+    private NoteRepository() {
+    }
+
+    public static NoteRepository getInstance() {
+        return instance;
+    }
+
+    /**
+     * Forget the notes of the previous account when the account changes.
+     * @param account name of the current account, or null when logged out.
+     */
+    public synchronized void setAccount(@Nullable String account) {
+        if (Objects.equals(this.account, account))
+            return;
+
+        this.account = account;
+        notes.clear();
+        tags.clear();
+        localChanges.clear();
+    }
+
+    /**
+     * @return the version to pass to setNotes() with the notes downloaded from now.
+     */
+    public synchronized long getVersion() {
+        return version;
+    }
+
+    /**
+     * Store the downloaded notes, keeping the local changes the download does not have yet.
+     * @param noteList downloaded notes.
+     * @param account account of the notes.
+     * @param fetchVersion value of getVersion() when the download started.
+     * @return false if the notes are of another account, so they were ignored.
+     */
+    public synchronized boolean setNotes(@NonNull List<Note> noteList, @Nullable String account, long fetchVersion) {
+        if (!Objects.equals(this.account, account))
+            return false;
+
+        notes.clear();
+        for (Note note: noteList) {
+            notes.put(note.getId(), note);
+        }
+
+        Iterator<Map.Entry<Integer, LocalChange>> iterator = localChanges.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Integer, LocalChange> entry = iterator.next();
+            LocalChange change = entry.getValue();
+            if (change.confirmedVersion >= 0 && change.confirmedVersion <= fetchVersion) {
+                // Downloaded after the server confirmed it, so it is already on the list.
+                iterator.remove();
+            } else if (change.note != null) {
+                notes.put(entry.getKey(), change.note);
+            } else {
+                notes.remove(entry.getKey());
+            }
+        }
+        return true;
+    }
+
+    public synchronized void setTags(@NonNull List<Tag> tagList) {
+        tags.clear();
+        tags.addAll(tagList);
+    }
+
+    /**
+     * @param id note id
+     * @return the stored note, or null if it is unknown, e.g. after the process was killed.
+     */
+    @Nullable
+    public synchronized Note getNote(int id) {
+        return notes.get(id);
+    }
+
+    @NonNull
+    public synchronized List<Note> getNotes() {
+        return new ArrayList<>(notes.values());
+    }
+
+    /**
+     * Add or replace a note already stored on the server, e.g. just created.
+     * @param note note to store.
+     * @return the replaced note, or null if it is new.
+     */
+    @Nullable
+    public Note putNote(@NonNull Note note) {
+        Note previous;
+        synchronized (this) {
+            previous = notes.put(note.getId(), note);
+            localChanges.put(note.getId(), new LocalChange(note, ++version));
+        }
+        notifyChanged();
+        return previous;
+    }
+
+    /**
+     * Apply a change that is being sent to the server.
+     * @param note changed note.
+     * @return the replaced note, or null if it is new.
+     */
+    @Nullable
+    public Note putLocalNote(@NonNull Note note) {
+        Note previous;
+        synchronized (this) {
+            previous = notes.put(note.getId(), note);
+            localChanges.put(note.getId(), new LocalChange(note, -1));
+            version++;
+        }
+        notifyChanged();
+        return previous;
+    }
+
+    /**
+     * Replace the note only if it is still the expected one, so an outdated
+     * server response does not overwrite a newer local change.
+     * @param expected note that must be stored now.
+     * @param note note confirmed by the server.
+     * @return true if replaced.
+     */
+    public boolean confirmNote(@NonNull Note expected, @NonNull Note note) {
+        synchronized (this) {
+            if (notes.get(expected.getId()) != expected)
+                return false;
+
+            notes.put(note.getId(), note);
+            localChanges.put(note.getId(), new LocalChange(note, ++version));
+        }
+        notifyChanged();
+        return true;
+    }
+
+    /**
+     * Undo a change the server rejected, unless the note changed again meanwhile.
+     * @param expected note that must be stored now.
+     * @param previous note before the change, or null to remove it.
+     * @return true if restored.
+     */
+    public boolean revertNote(@NonNull Note expected, @Nullable Note previous) {
+        synchronized (this) {
+            if (notes.get(expected.getId()) != expected)
+                return false;
+
+            if (previous != null) {
+                notes.put(previous.getId(), previous);
+            } else {
+                notes.remove(expected.getId());
+            }
+            localChanges.remove(expected.getId());
+            version++;
+        }
+        notifyChanged();
+        return true;
+    }
+
+    /**
+     * Remove a note while the server is asked to delete it.
+     * @param id note id
+     * @return the removed note, or null if it was unknown.
+     */
+    @Nullable
+    public Note removeLocalNote(int id) {
+        Note removed;
+        synchronized (this) {
+            removed = notes.remove(id);
+            localChanges.put(id, new LocalChange(null, -1));
+            version++;
+        }
+        if (removed != null) {
+            notifyChanged();
+        }
+        return removed;
+    }
+
+    /**
+     * @param id id of the note the server deleted.
+     */
+    public synchronized void confirmRemoval(int id) {
+        LocalChange change = localChanges.get(id);
+        if (change != null && change.note == null) {
+            localChanges.put(id, new LocalChange(null, ++version));
+        }
+    }
+
+    /**
+     * Restore a note the server failed to delete.
+     * @param id note id
+     * @param previous the removed note, or null if it was unknown.
+     */
+    public void revertRemoval(int id, @Nullable Note previous) {
+        synchronized (this) {
+            LocalChange change = localChanges.get(id);
+            if (change == null || change.note != null)
+                return;
+
+            localChanges.remove(id);
+            version++;
+            if (previous == null)
+                return;
+            notes.put(id, previous);
+        }
+        notifyChanged();
+    }
+
+    public void addOnChangeListener(@NonNull OnChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeOnChangeListener(@NonNull OnChangeListener listener) {
+        listeners.remove(listener);
+    }
+
+    private void notifyChanged() {
+        for (OnChangeListener listener: listeners) {
+            listener.onNotesChanged();
+        }
+    }
+
+    /**
+     * @return a copy of the tags list, so callers can modify it.
+     */
+    @NonNull
+    public synchronized List<Tag> getTags() {
+        return new ArrayList<>(tags);
+    }
+}
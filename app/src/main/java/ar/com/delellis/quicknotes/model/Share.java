@@ -21,13 +21,16 @@
 
 package ar.com.delellis.quicknotes.model;
 
+import android.os.Parcel;
+import android.os.Parcelable;
+
 import com.google.gson.annotations.Expose;
 import com.google.gson.annotations.SerializedName;
 
 import java.io.Serializable;
 import java.util.Objects;
 
-public class Share implements Serializable {
+public class Share implements Serializable, Parcelable {
     @Expose
     @SerializedName("id") private int id;
 
@@ -43,6 +46,30 @@ public class Share implements Serializable {
     @Expose
     @SerializedName("shared_group") private String sharedGroup;
 
+    public Share() {
+
+    }
+
+    /**
+     * Copy constructor.
+     * @param other share to copy
+     */
+    public Share(Share other) {
+        this.id = other.id;
+        this.userId = other.userId;
+        this.noteId = other.noteId;
+        this.sharedUser = other.sharedUser;
+        this.sharedGroup = other.sharedGroup;
+    }
+
+    protected Share(Parcel in) {
+        id = in.readInt();
+        userId = in.readString();
+        noteId = in.readString();
+        sharedUser = in.readString();
+        sharedGroup = in.readString();
+    }
+
     public int getId() {
         return id;
     }
@@ -99,4 +126,30 @@ public class Share implements Serializable {
         return  (Objects.equals(this.sharedUser, oShare.getSharedUser()) &&
                  Objects.equals(this.sharedGroup, oShare.getSharedGroup()));
     }
+
+    public static final Creator<Share> CREATOR = new Creator<Share>() {
+        @Override
+        public Share createFromParcel(Parcel in) {
+            return new Share(in);
+        }
+
+        @Override
+        public Share[] newArray(int size) {
+            return new Share[size];
+        }
+    };
+
+    @Override
+    public int describeContents() {
+        return 0;
+    }
+
+    @Override
+    public void writeToParcel(Parcel dest, int flags) {
+        dest.writeInt(id);
+        dest.writeString(userId);
+        dest.writeString(noteId);
+        dest.writeString(sharedUser);
+        dest.writeString(sharedGroup);
+    }
 }
@@ -21,19 +21,40 @@
 
 package ar.com.delellis.quicknotes.model;
 
+import android.os.Parcel;
+import android.os.Parcelable;
+
 import com.google.gson.annotations.Expose;
 import com.google.gson.annotations.SerializedName;
 
 import java.io.Serializable;
 import java.util.Objects;
 
-public class Tag implements Serializable {
+public class Tag implements Serializable, Parcelable {
     @Expose
     @SerializedName("id") private int id;
 
     @Expose
     @SerializedName("name") private String name;
 
+    public Tag() {
+
+    }
+
+    /**
+     * Copy constructor.
+     * @param other tag to copy
+     */
+    public Tag(Tag other) {
+        this.id = other.id;
+        this.name = other.name;
+    }
+
+    protected Tag(Parcel in) {
+        id = in.readInt();
+        name = in.readString();
+    }
+
     public int getId() {
         return id;
     }
@@ -63,4 +84,27 @@ public class Tag implements Serializable {
         // The important is the name since the new tags always use the same empty id.
         return  (Objects.equals(this.name, oTag.getName()));
     }
+
+    public static final Creator<Tag> CREATOR = new Creator<Tag>() {
+        @Override
+        public Tag createFromParcel(Parcel in) {
+            return new Tag(in);
+        }
+
+        @Override
+        public Tag[] newArray(int size) {
+            return new Tag[size];
+        }
+    };
+
+    @Override
+    public int describeContents() {
+        return 0;
+    }
+
+    @Override
+    public void writeToParcel(Parcel dest, int flags) {
+        dest.writeInt(id);
+        dest.writeString(name);
+    }
 }
@@ -21,6 +21,8 @@
 
 package ar.com.delellis.quicknotes.shared;
 
+import android.content.Context;
+import android.graphics.drawable.Drawable;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -31,6 +33,7 @@ import androidx.annotation.NonNull;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.bumptech.glide.Glide;
+import com.bumptech.glide.RequestBuilder;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -74,8 +77,7 @@ public class AttachmentAdapter extends RecyclerView.Adapter<AttachmentAdapter.Vi
         }
 
         private void bind(@NonNull Attachment attachment) {
-            Glide.with(view.getContext())
-                    .load(attachment.getPreviewUrl())
+            loadThumbnail(view.getContext(), attachment)
                     .error(R.drawable.ic_attach_file)
                     .into(ivThumbnail);
         }
@@ -84,6 +86,20 @@ public class AttachmentAdapter extends RecyclerView.Adapter<AttachmentAdapter.Vi
     @NonNull
     private List<Attachment> attachments = new ArrayList<>();
 
+    /**
+     * Request of the thumbnail as shown on the list, so anyone can preload exactly the same image.
+     * @param context context of glide
+     * @param attachment attachment to load
+     * @return glide request.
+     */
+    @NonNull
+    public static RequestBuilder<Drawable> loadThumbnail(@NonNull Context context, @NonNull Attachment attachment) {
+        // The thumbnail use fitXY, which Glide load as centerInside.
+        return Glide.with(context)
+                .load(attachment.getPreviewUrl())
+                .optionalCenterInside();
+    }
+
     @NonNull
     @Override
     public ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
@@ -21,15 +21,94 @@
 
 package ar.com.delellis.quicknotes.util;
 
+import android.content.Context;
+import android.graphics.Color;
 import android.graphics.drawable.Drawable;
+import android.util.SparseArray;
 import android.view.MenuItem;
 import android.widget.ImageView;
 
 import androidx.annotation.ColorInt;
+import androidx.annotation.DrawableRes;
+import androidx.annotation.NonNull;
+import androidx.core.content.res.ResourcesCompat;
 import androidx.core.graphics.drawable.DrawableCompat;
 
+import java.util.HashMap;
+import java.util.Map;
+
+import ar.com.delellis.quicknotes.R;
+
 public class ColorUtil {
 
+    private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+
+    // Notes use a handful of colors, so parse each one just once.
+    private static final Map<String, Integer> parsedColors = new HashMap<>();
+
+    // Tinted icons keyed by drawable and color, shared between all cards.
+    private static final SparseArray<Map<Integer, Drawable.ConstantState>> tintedDrawables = new SparseArray<>();
+
+    /**
+     * Preload the note colors offered on the palette.
+     * @param context context to read the palette.
+     */
+    public static void loadPalette(@NonNull Context context) {
+        for (String color: context.getResources().getStringArray(R.array.pallete_colors)) {
+            parseColor(color);
+        }
+    }
+
+    /**
+     * Same as Color.parseColor() but caching the result.
+     * @param color color string as #RRGGBB or #AARRGGBB
+     * @return color int
+     */
+    @ColorInt
+    public static int parseColor(@NonNull String color) {
+        synchronized (parsedColors) {
+            Integer parsed = parsedColors.get(color);
+            if (parsed == null) {
+                parsed = Color.parseColor(color);
+                parsedColors.put(color, parsed);
+            }
+            return parsed;
+        }
+    }
+
+    /**
+     * Get a drawable tinted with the given color. The tinted state is shared
+     * between all callers, so only a lightweight drawable is created each time.
+     * @param context context to load the drawable
+     * @param resId drawable resource
+     * @param color tint color
+     * @return tinted drawable, or null if it does not exist.
+     */
+    public static Drawable getTintedDrawable(@NonNull Context context, @DrawableRes int resId, @ColorInt int color) {
+        Map<Integer, Drawable.ConstantState> states = tintedDrawables.get(resId);
+        if (states == null) {
+            states = new HashMap<>();
+            tintedDrawables.put(resId, states);
+        }
+
+        Drawable.ConstantState state = states.get(color);
+        if (state == null) {
+            Drawable normalDrawable = ResourcesCompat.getDrawable(context.getResources(), resId, null);
+            if (normalDrawable == null) {
+                return null;
+            }
+            // Mutate, so the tint does not reach the drawables already cached in other colors.
+            Drawable wrapDrawable = DrawableCompat.wrap(normalDrawable.mutate());
+            DrawableCompat.setTint(wrapDrawable, color);
+            state = wrapDrawable.getConstantState();
+            if (state == null) {
+                return wrapDrawable;
+            }
+            states.put(color, state);
+        }
+        return state.newDrawable(context.getResources());
+    }
+
     public static void imageViewTintColor(ImageView imageView, @ColorInt int color) {
         Drawable normalDrawable = imageView.getDrawable();
         Drawable wrapDrawable = DrawableCompat.wrap(normalDrawable);
@@ -45,10 +124,20 @@ public class ColorUtil {
     }
 
     public static String getRGBColorFromInt (@ColorInt int color) {
-        return String.format("#%06X", (0xFFFFFF & color));
+        return toHexString(color, 6);
     }
 
     public static String getRGBAColorFromInt (@ColorInt int color) {
-        return String.format("#%08X", color);
+        return toHexString(color, 8);
+    }
+
+    private static String toHexString(int value, int digits) {
+        char[] chars = new char[digits + 1];
+        chars[0] = '#';
+        for (int i = digits; i > 0; i--) {
+            chars[i] = HEX_DIGITS[value & 0xF];
+            value >>>= 4;
+        }
+        return new String(chars);
     }
 }
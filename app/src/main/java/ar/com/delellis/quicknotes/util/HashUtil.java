@@ -0,0 +1,68 @@
+/*
+ * Nextcloud Quicknotes Android client application.
+ *
+ * @copyright Copyright (c) 2020 Matias De lellis <mati86dl@gmail.com>
+ *
+ * @author Matias De lellis <mati86dl@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package ar.com.delellis.quicknotes.util;
+
+import androidx.annotation.NonNull;
+
+/**
+ * 64 bits FNV-1a hashes, cheap enough to fingerprint whole note contents.
+ */
+public class HashUtil {
+
+    public static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    public static final long FNV_PRIME = 0x100000001b3L;
+
+    private HashUtil() {
+    }
+
+    /**
+     * @param value string to hash.
+     * @return FNV-1a hash of the chars of the string.
+     */
+    public static long fnv1a(@NonNull String value) {
+        return fnv1a(FNV_OFFSET_BASIS, value);
+    }
+
+    /**
+     * Continue a hash with the chars of the string.
+     * @param hash hash so far, FNV_OFFSET_BASIS to start a new one.
+     * @param value string to add.
+     * @return the updated hash.
+     */
+    public static long fnv1a(long hash, @NonNull String value) {
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= FNV_PRIME;
+        }
+        return hash;
+    }
+
+    /**
+     * Continue a hash with a single value.
+     * @param hash hash so far.
+     * @param value value to add.
+     * @return the updated hash.
+     */
+    public static long fnv1a(long hash, int value) {
+        return (hash ^ value) * FNV_PRIME;
+    }
+}
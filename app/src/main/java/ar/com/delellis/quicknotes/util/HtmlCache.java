@@ -0,0 +1,160 @@
+/*
+ * Nextcloud Quicknotes Android client application.
+ *
+ * @copyright Copyright (c) 2020 Matias De lellis <mati86dl@gmail.com>
+ *
+ * @author Matias De lellis <mati86dl@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package ar.com.delellis.quicknotes.util;
+
+import android.util.LruCache;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded cache of the sanitized forms of html strings, keyed by a hash of
+ * the content. The same note bodies are cleaned again and again when binding,
+ * searching and editing, so this avoids most of that work.
+ */
+class HtmlCache {
+
+    // Budget in bytes of the cached strings.
+    private static final int MAX_SIZE = 4 * 1024 * 1024;
+
+    enum Form {
+        CLEAN_HTML,
+        CLEAN_STRING,
+        PLAIN_TEXT
+    }
+
+    /**
+     * Entries are never modified once in the cache, so the size accounted
+     * by the LruCache is always right. Adding a form puts a new copy.
+     */
+    private static class Entry {
+        @NonNull
+        final String source;
+
+        final String cleanHtml;
+        final String cleanString;
+        final String plainText;
+
+        Entry(@NonNull String source, String cleanHtml, String cleanString, String plainText) {
+            this.source = source;
+            this.cleanHtml = cleanHtml;
+            this.cleanString = cleanString;
+            this.plainText = plainText;
+        }
+
+        String get(Form form) {
+            switch (form) {
+                case CLEAN_HTML: return cleanHtml;
+                case CLEAN_STRING: return cleanString;
+                default: return plainText;
+            }
+        }
+
+        Entry with(Form form, String value) {
+            switch (form) {
+                case CLEAN_HTML: return new Entry(source, value, cleanString, plainText);
+                case CLEAN_STRING: return new Entry(source, cleanHtml, value, plainText);
+                default: return new Entry(source, cleanHtml, cleanString, value);
+            }
+        }
+
+        boolean isOf(String html) {
+            return source == html || source.equals(html);
+        }
+
+        int getSize() {
+            return 2 * (source.length() + length(cleanHtml) + length(cleanString) + length(plainText));
+        }
+
+        private static int length(String value) {
+            return value != null ? value.length() : 0;
+        }
+    }
+
+    // LruCache synchronizes each call, so no other lock is needed.
+    private final LruCache<Long, Entry> cache = new LruCache<Long, Entry>(MAX_SIZE) {
+        @Override
+        protected int sizeOf(Long key, Entry entry) {
+            return entry.getSize();
+        }
+    };
+
+    // A hit is an entry that has the requested form, not just the entry.
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+
+    /**
+     * The key is computed once by the caller for both the lookup and the
+     * store. Hashing and comparing the html happen outside of any lock, so
+     * the threads cleaning notes in parallel only contend on the map itself.
+     * @param html html string.
+     * @return key of the html on the cache.
+     */
+    static long key(@NonNull String html) {
+        return HashUtil.fnv1a(html);
+    }
+
+    /**
+     * @param key key of the html.
+     * @param html html string.
+     * @param form the wanted form of the html.
+     * @return the cached form, or null if it was not computed yet.
+     */
+    @Nullable
+    String get(long key, @NonNull String html, @NonNull Form form) {
+        Entry entry = cache.get(key);
+        String value = entry != null && entry.isOf(html) ? entry.get(form) : null;
+        if (value != null) {
+            hitCount.incrementAndGet();
+        } else {
+            missCount.incrementAndGet();
+        }
+        return value;
+    }
+
+    /**
+     * Cache a form of the html, keeping the other forms already computed.
+     * Two threads adding forms of the same html at once may drop one of
+     * them, which is just computed again the next time.
+     * @param key key of the html.
+     * @param html html string.
+     * @param form the form of the html.
+     * @param value the html on that form.
+     */
+    void put(long key, @NonNull String html, @NonNull Form form, @NonNull String value) {
+        Entry entry = cache.get(key);
+        // On a hash collision just replace the old entry.
+        if (entry == null || !entry.isOf(html)) {
+            entry = new Entry(html, null, null, null);
+        }
+        cache.put(key, entry.with(form, value));
+    }
+
+    @NonNull
+    String getStats() {
+        return String.format(Locale.ROOT, "Html cache: %d hits, %d misses, %d evictions, %d/%d KB",
+                hitCount.get(), missCount.get(), cache.evictionCount(), cache.size() / 1024, cache.maxSize() / 1024);
+    }
+}
@@ -0,0 +1,422 @@
+/*
+ * Nextcloud Quicknotes Android client application.
+ *
+ * @copyright Copyright (c) 2020 Matias De lellis <mati86dl@gmail.com>
+ *
+ * @author Matias De lellis <mati86dl@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package ar.com.delellis.quicknotes.util;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Single pass sanitizer for the html policy of HtmlUtil.basicWhitelist().
+ *
+ * It only handles well formed html made of the allowed tags, which is what
+ * the notes usually contain. When the input needs any tree fixup of the html
+ * parser, or anything else where the output could differ from the Jsoup
+ * Cleaner, it gives up and returns null so the caller can use Jsoup.
+ */
+class HtmlSanitizer {
+
+    private static final String[] ALLOWED_TAGS = {
+            "p", "br", "b", "strong", "i", "u", "s", "strike", "li", "ol", "ul", "blockquote", "pre", "a"
+    };
+
+    // Tags that are removed keeping their content, without side effects on the html tree.
+    private static final String[] DROPPED_TAGS = {
+            "span"
+    };
+
+    private static final String[] BLOCK_TAGS = {
+            "p", "li", "ol", "ul", "blockquote", "pre"
+    };
+
+    // Elements that stop the search of an open li.
+    private static final String[] LIST_SCOPE_TAGS = {
+            "ol", "ul", "blockquote", "pre"
+    };
+
+    private static final String[] ALLOWED_PROTOCOLS = {
+            "ftp:", "http:", "https:", "mailto:"
+    };
+
+    private static final ThreadLocal<HtmlSanitizer> instances = new ThreadLocal<HtmlSanitizer>() {
+        @Override
+        protected HtmlSanitizer initialValue() {
+            return new HtmlSanitizer();
+        }
+    };
+
+    private final StringBuilder out = new StringBuilder();
+    private final List<String> openTags = new ArrayList<>();
+
+    private String input;
+    private int pos;
+
+    private HtmlSanitizer() {
+    }
+
+    /**
+     * Sanitize the html with the same result as HtmlUtil.cleanHtml().
+     * @param html html to clean
+     * @return clean html, or null when it can't be sanitized on a single pass.
+     */
+    @Nullable
+    static String sanitize(@NonNull String html) {
+        HtmlSanitizer sanitizer = instances.get();
+        try {
+            return sanitizer.run(html) ? sanitizer.out.toString() : null;
+        } finally {
+            sanitizer.reset();
+        }
+    }
+
+    private void reset() {
+        input = null;
+        openTags.clear();
+        // Don't keep huge buffers around.
+        if (out.capacity() > 64 * 1024) {
+            out.setLength(0);
+            out.trimToSize();
+        }
+        out.setLength(0);
+    }
+
+    private boolean run(String html) {
+        input = html;
+        pos = 0;
+
+        int length = input.length();
+        while (pos < length) {
+            char c = input.charAt(pos);
+            if (c == '<') {
+                if (!tag())
+                    return false;
+            } else if (c == '&') {
+                if (!entity())
+                    return false;
+            } else {
+                if (!text(c))
+                    return false;
+                pos++;
+            }
+        }
+
+        // The parser closes everything left open.
+        for (int i = openTags.size() - 1; i >= 0; i--) {
+            closeTag(openTags.get(i));
+        }
+        return true;
+    }
+
+    private boolean text(int c) {
+        switch (c) {
+            case '&':
+                out.append("&amp;");
+                break;
+            case '<':
+                out.append("&lt;");
+                break;
+            case '>':
+                out.append("&gt;");
+                break;
+            case 0xA0:
+                out.append("&nbsp;");
+                break;
+            case '\t':
+            case '\n':
+                out.append((char) c);
+                break;
+            default:
+                // Let the parser deal with control chars and broken surrogates.
+                if (c < 0x20 || (c >= 0x7F && c <= 0x9F))
+                    return false;
+                if (Character.isSurrogate((char) c) && !validSurrogate())
+                    return false;
+                out.append((char) c);
+        }
+        return true;
+    }
+
+    private boolean validSurrogate() {
+        char c = input.charAt(pos);
+        if (Character.isHighSurrogate(c)) {
+            return pos + 1 < input.length() && Character.isLowSurrogate(input.charAt(pos + 1));
+        }
+        return pos > 0 && Character.isHighSurrogate(input.charAt(pos - 1));
+    }
+
+    private boolean entity() {
+        int start = pos + 1;
+        if (start >= input.length()) {
+            out.append("&amp;");
+            pos++;
+            return true;
+        }
+
+        char first = input.charAt(start);
+        if (first != '#' && !isAsciiLetter(first)) {
+            // Just an ampersand.
+            out.append("&amp;");
+            pos++;
+            return true;
+        }
+
+        int end = input.indexOf(';', start);
+        if (end < 0 || end - start > 10)
+            return false;
+
+        String name = input.substring(start, end);
+        int codePoint;
+        switch (name) {
+            case "amp": codePoint = '&'; break;
+            case "lt": codePoint = '<'; break;
+            case "gt": codePoint = '>'; break;
+            case "quot": codePoint = '"'; break;
+            case "apos": codePoint = '\''; break;
+            case "nbsp": codePoint = 0xA0; break;
+            default:
+                codePoint = numericEntity(name);
+        }
+
+        // Only plain characters, the parser remaps or replaces the others.
+        if (codePoint < 0x20 || (codePoint >= 0x7F && codePoint <= 0x9F) ||
+                (codePoint >= Character.MIN_SURROGATE && codePoint <= Character.MAX_SURROGATE) ||
+                codePoint > Character.MAX_CODE_POINT)
+            return false;
+
+        if (Character.isBmpCodePoint(codePoint)) {
+            if (!text(codePoint))
+                return false;
+        } else {
+            out.appendCodePoint(codePoint);
+        }
+        pos = end + 1;
+        return true;
+    }
+
+    private static int numericEntity(String name) {
+        if (name.length() < 2 || name.charAt(0) != '#')
+            return -1;
+        try {
+            if (name.charAt(1) == 'x' || name.charAt(1) == 'X')
+                return Integer.parseInt(name.substring(2), 16);
+            return Integer.parseInt(name.substring(1));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private boolean tag() {
+        int length = input.length();
+        int i = pos + 1;
+        boolean endTag = false;
+        if (i < length && input.charAt(i) == '/') {
+            endTag = true;
+            i++;
+        }
+        if (i >= length || !isAsciiLetter(input.charAt(i)))
+            return false;
+
+        int nameStart = i;
+        while (i < length && isAsciiLetter(input.charAt(i)))
+            i++;
+        String name = input.substring(nameStart, i).toLowerCase();
+        if (!contains(ALLOWED_TAGS, name) && !contains(DROPPED_TAGS, name))
+            return false;
+
+        String href = null;
+        boolean selfClosing = false;
+        while (true) {
+            while (i < length && isWhitespace(input.charAt(i)))
+                i++;
+            if (i >= length)
+                return false;
+
+            char c = input.charAt(i);
+            if (c == '>') {
+                i++;
+                break;
+            }
+            if (c == '/') {
+                if (i + 1 < length && input.charAt(i + 1) == '>') {
+                    selfClosing = true;
+                    i += 2;
+                    break;
+                }
+                return false;
+            }
+            if (endTag || !isAsciiLetter(c))
+                return false;
+
+            // Attribute name.
+            int attrStart = i;
+            while (i < length && (isAsciiLetter(input.charAt(i)) || input.charAt(i) == '-'))
+                i++;
+            String attrName = input.substring(attrStart, i).toLowerCase();
+            while (i < length && isWhitespace(input.charAt(i)))
+                i++;
+
+            String attrValue = "";
+            if (i < length && input.charAt(i) == '=') {
+                i++;
+                while (i < length && isWhitespace(input.charAt(i)))
+                    i++;
+                if (i >= length)
+                    return false;
+                char quote = input.charAt(i);
+                int valueStart;
+                int valueEnd;
+                if (quote == '"' || quote == '\'') {
+                    valueStart = i + 1;
+                    valueEnd = input.indexOf(quote, valueStart);
+                    if (valueEnd < 0)
+                        return false;
+                    i = valueEnd + 1;
+                } else {
+                    valueStart = i;
+                    while (i < length && !isWhitespace(input.charAt(i)) && input.charAt(i) != '>')
+                        i++;
+                    valueEnd = i;
+                }
+                attrValue = input.substring(valueStart, valueEnd);
+            } else if (i < length && input.charAt(i) != '>' && input.charAt(i) != '/' && !isAsciiLetter(input.charAt(i))) {
+                return false;
+            }
+
+            // The parser keeps just the first of repeated attributes.
+            if (name.equals("a") && attrName.equals("href") && href == null) {
+                href = attrValue;
+            }
+        }
+
+        if (selfClosing && !name.equals("br"))
+            return false;
+
+        pos = i;
+        return endTag ? endTag(name) : startTag(name, href);
+    }
+
+    private boolean startTag(String name, String href) {
+        if (name.equals("br")) {
+            out.append("<br>");
+            return true;
+        }
+
+        if (contains(BLOCK_TAGS, name) && openTags.contains("p"))
+            return false;
+
+        if (name.equals("li")) {
+            for (int i = openTags.size() - 1; i >= 0; i--) {
+                String open = openTags.get(i);
+                if (open.equals("li"))
+                    return false;
+                if (contains(LIST_SCOPE_TAGS, open))
+                    break;
+            }
+        }
+
+        if (name.equals("pre") && pos < input.length() && (input.charAt(pos) == '\n' || input.charAt(pos) == '\r'))
+            return false;
+
+        if (name.equals("a")) {
+            if (openTags.contains("a"))
+                return false;
+            out.append("<a");
+            if (href != null && !href.isEmpty()) {
+                if (!isSafeUrl(href))
+                    return false;
+                out.append(" href=\"").append(href).append('"');
+            }
+            out.append(" rel=\"nofollow\">");
+        } else if (!contains(DROPPED_TAGS, name)) {
+            out.append('<').append(name).append('>');
+        }
+
+        openTags.add(name);
+        return true;
+    }
+
+    private boolean endTag(String name) {
+        if (name.equals("br") || openTags.isEmpty())
+            return false;
+
+        int top = openTags.size() - 1;
+        if (!openTags.get(top).equals(name))
+            return false;
+
+        openTags.remove(top);
+        closeTag(name);
+        return true;
+    }
+
+    private void closeTag(String name) {
+        if (!contains(DROPPED_TAGS, name)) {
+            out.append("</").append(name).append('>');
+        }
+    }
+
+    /**
+     * Accept only links that the Cleaner would keep untouched.
+     */
+    private static boolean isSafeUrl(String href) {
+        boolean allowedProtocol = false;
+        for (String protocol: ALLOWED_PROTOCOLS) {
+            if (href.startsWith(protocol)) {
+                allowedProtocol = true;
+                break;
+            }
+        }
+        if (!allowedProtocol)
+            return false;
+
+        for (int i = 0; i < href.length(); i++) {
+            char c = href.charAt(i);
+            if (c <= 0x20 || c >= 0x7F || c == '"' || c == '&' || c == '<' || c == '>')
+                return false;
+        }
+
+        try {
+            return new URL(href).toExternalForm().equals(href);
+        } catch (MalformedURLException e) {
+            return false;
+        }
+    }
+
+    private static boolean contains(String[] values, String value) {
+        for (String v: values) {
+            if (v.equals(value))
+                return true;
+        }
+        return false;
+    }
+
+    private static boolean isAsciiLetter(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\f' || c == '\r';
+    }
+}
@@ -0,0 +1,243 @@
+/*
+ * Nextcloud Quicknotes Android client application.
+ *
+ * @copyright Copyright (c) 2020 Matias De lellis <mati86dl@gmail.com>
+ *
+ * @author Matias De lellis <mati86dl@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package ar.com.delellis.quicknotes.util;
+
+import androidx.annotation.NonNull;
+
+import org.jsoup.parser.Parser;
+
+/**
+ * Extract the text of an html string on a single linear scan, without
+ * building any document. Tags are removed, the content of script and style
+ * is skipped, entities are decoded and whitespace is collapsed.
+ */
+class HtmlTextExtractor {
+
+    private static final ThreadLocal<StringBuilder> buffers = new ThreadLocal<StringBuilder>() {
+        @Override
+        protected StringBuilder initialValue() {
+            return new StringBuilder();
+        }
+    };
+
+    private HtmlTextExtractor() {
+    }
+
+    @NonNull
+    static String extract(@NonNull String html) {
+        StringBuilder out = buffers.get();
+        out.setLength(0);
+
+        int length = html.length();
+        boolean pendingSpace = false;
+        int i = 0;
+        while (i < length) {
+            char c = html.charAt(i);
+            if (c == '<' && i + 1 < length && isMarkupStart(html.charAt(i + 1))) {
+                if (html.startsWith("<!--", i)) {
+                    int close = html.indexOf("-->", i + 2);
+                    i = close < 0 ? length : close + 3;
+                    continue;
+                }
+                int end = tagEnd(html, i + 1);
+                if (end < 0) {
+                    // The parser drops a tag left open at the end.
+                    break;
+                }
+                String skipUntil = skippedContentEnd(html, i + 1, end);
+                if (skipUntil != null) {
+                    int close = indexOfIgnoreCase(html, skipUntil, end + 1);
+                    end = close < 0 ? length - 1 : html.indexOf('>', close);
+                    if (end < 0) end = length - 1;
+                }
+                // Separate the words of different blocks and lines.
+                if (isBlockBoundary(html, i + 1, end)) {
+                    pendingSpace = true;
+                }
+                i = end + 1;
+            } else if (c == '&') {
+                int end = html.indexOf(';', i + 1);
+                String decoded = end >= 0 && end - i <= 32 ? decodeEntity(html.substring(i + 1, end)) : null;
+                if (decoded == null) {
+                    append(out, '&', pendingSpace);
+                    pendingSpace = false;
+                    i++;
+                } else if (decoded.length() == 1 && isTextWhitespace(decoded.charAt(0))) {
+                    pendingSpace = true;
+                    i = end + 1;
+                } else {
+                    if (pendingSpace && out.length() > 0) {
+                        out.append(' ');
+                    }
+                    out.append(decoded);
+                    pendingSpace = false;
+                    i = end + 1;
+                }
+            } else if (isTextWhitespace(c)) {
+                pendingSpace = true;
+                i++;
+            } else {
+                append(out, c, pendingSpace);
+                pendingSpace = false;
+                i++;
+            }
+        }
+
+        String text = out.toString();
+        if (out.capacity() > 64 * 1024) {
+            out.setLength(0);
+            out.trimToSize();
+        }
+        return text;
+    }
+
+    private static void append(StringBuilder out, char c, boolean pendingSpace) {
+        if (pendingSpace && out.length() > 0) {
+            out.append(' ');
+        }
+        out.append(c);
+    }
+
+    /**
+     * @param name entity name, between the '&' and the ';'.
+     * @return the decoded text, or null if it is not an entity.
+     */
+    private static String decodeEntity(String name) {
+        switch (name) {
+            case "amp": return "&";
+            case "lt": return "<";
+            case "gt": return ">";
+            case "quot": return "\"";
+            case "apos": return "'";
+            case "nbsp": return "\u00A0";
+            default:
+                return decodeOtherEntity(name);
+        }
+    }
+
+    private static String decodeOtherEntity(String name) {
+        if (name.isEmpty())
+            return null;
+
+        if (name.charAt(0) == '#') {
+            try {
+                int codePoint = (name.length() > 1 && (name.charAt(1) == 'x' || name.charAt(1) == 'X')) ?
+                        Integer.parseInt(name.substring(2), 16) :
+                        Integer.parseInt(name.substring(1));
+                if (!Character.isValidCodePoint(codePoint))
+                    return null;
+                return new String(Character.toChars(codePoint));
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (!Character.isLetterOrDigit(c))
+                return null;
+        }
+
+        // Let Jsoup look the name on its entity table.
+        String entity = "&" + name + ";";
+        String decoded = Parser.unescapeEntities(entity, false);
+        return decoded.equals(entity) ? null : decoded;
+    }
+
+    /**
+     * Like the html parser, a less than sign only opens a tag, a comment or
+     * a declaration when followed by a letter, a slash, '!' or '?'.
+     */
+    private static boolean isMarkupStart(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '/' || c == '!' || c == '?';
+    }
+
+    /**
+     * Find the end of the tag, skipping the quoted attribute values.
+     * @return index of the closing '>', or -1 if the tag is not closed.
+     */
+    private static int tagEnd(String html, int from) {
+        int length = html.length();
+        char previous = 0;
+        for (int i = from; i < length; i++) {
+            char c = html.charAt(i);
+            if (c == '>')
+                return i;
+            if ((c == '"' || c == '\'') && previous == '=') {
+                i = html.indexOf(c, i + 1);
+                if (i < 0)
+                    return -1;
+                previous = c;
+                continue;
+            }
+            if (!isWhitespace(c))
+                previous = c;
+        }
+        return -1;
+    }
+
+    private static String skippedContentEnd(String html, int nameStart, int tagEnd) {
+        if (startsWithTag(html, nameStart, tagEnd, "script"))
+            return "</script";
+        if (startsWithTag(html, nameStart, tagEnd, "style"))
+            return "</style";
+        return null;
+    }
+
+    private static boolean isBlockBoundary(String html, int nameStart, int tagEnd) {
+        if (nameStart < tagEnd && html.charAt(nameStart) == '/')
+            nameStart++;
+        return startsWithTag(html, nameStart, tagEnd, "p") ||
+                startsWithTag(html, nameStart, tagEnd, "br") ||
+                startsWithTag(html, nameStart, tagEnd, "li") ||
+                startsWithTag(html, nameStart, tagEnd, "div") ||
+                startsWithTag(html, nameStart, tagEnd, "blockquote") ||
+                startsWithTag(html, nameStart, tagEnd, "pre");
+    }
+
+    private static boolean startsWithTag(String html, int nameStart, int tagEnd, String name) {
+        int nameEnd = nameStart + name.length();
+        if (nameEnd > tagEnd || !html.regionMatches(true, nameStart, name, 0, name.length()))
+            return false;
+        char next = html.charAt(nameEnd);
+        return next == '>' || next == '/' || isWhitespace(next);
+    }
+
+    private static int indexOfIgnoreCase(String html, String value, int from) {
+        for (int i = from; i <= html.length() - value.length(); i++) {
+            if (html.regionMatches(true, i, value, 0, value.length()))
+                return i;
+        }
+        return -1;
+    }
+
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\f' || c == '\r';
+    }
+
+    /**
+     * Like Jsoup, the text collapses the non breaking spaces with the others.
+     */
+    private static boolean isTextWhitespace(char c) {
+        return isWhitespace(c) || c == '\u00A0';
+    }
+}
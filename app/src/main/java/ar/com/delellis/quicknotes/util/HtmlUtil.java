@@ -28,15 +28,48 @@ import org.jsoup.nodes.Document;
 import org.jsoup.safety.Cleaner;
 import org.jsoup.safety.Safelist;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+
 public class HtmlUtil {
 
+    // Increase it whenever the result of the sanitization changes.
+    public static final int SANITIZER_VERSION = 1;
+
+    private static final HtmlCache cache = new HtmlCache();
+
     /**
      * Remove all html tags, and return the text.
      * @param htmlString html to clean.
      * @return title
      */
     public static String cleanString(String htmlString) {
-        return Jsoup.clean(htmlString.trim(), noneWhitelist());
+        long key = HtmlCache.key(htmlString);
+        String clean = cache.get(key, htmlString, HtmlCache.Form.CLEAN_STRING);
+        if (clean == null) {
+            clean = Jsoup.clean(htmlString.trim(), noneWhitelist());
+            cache.put(key, htmlString, HtmlCache.Form.CLEAN_STRING, clean);
+        }
+        return clean;
+    }
+
+    /**
+     * Extract the plain text of the html, decoding the entities. Use it for
+     * searching, sorting and excerpts, but not to store the note.
+     * @param htmlString html to convert
+     * @return plain text
+     */
+    public static String toPlainText(String htmlString) {
+        long key = HtmlCache.key(htmlString);
+        String text = cache.get(key, htmlString, HtmlCache.Form.PLAIN_TEXT);
+        if (text == null) {
+            text = HtmlTextExtractor.extract(htmlString);
+            cache.put(key, htmlString, HtmlCache.Form.PLAIN_TEXT, text);
+        }
+        return text;
     }
 
     /**
@@ -45,6 +78,112 @@ public class HtmlUtil {
      * @return clean html
      */
     public static String cleanHtml(String htmlString) {
+        long key = HtmlCache.key(htmlString);
+        String clean = cache.get(key, htmlString, HtmlCache.Form.CLEAN_HTML);
+        if (clean == null) {
+            clean = HtmlSanitizer.sanitize(htmlString);
+            if (clean == null) {
+                clean = cleanHtmlDocument(htmlString);
+            }
+            cache.put(key, htmlString, HtmlCache.Form.CLEAN_HTML, clean);
+        }
+        return clean;
+    }
+
+    /**
+     * Clean the html block by block, so when only some paragraphs of a long
+     * document change, the others are taken from the cache.
+     * @param htmlString html to clean
+     * @return clean html
+     */
+    public static String cleanHtmlByBlocks(String htmlString) {
+        List<String> blocks = splitBlocks(htmlString);
+        if (blocks == null || blocks.size() < 2)
+            return cleanHtml(htmlString);
+
+        StringBuilder clean = new StringBuilder(htmlString.length());
+        for (String block: blocks) {
+            clean.append(cleanHtml(block));
+        }
+        return clean.toString();
+    }
+
+    /**
+     * Split the html after each top level element.
+     * @param htmlString html to split
+     * @return blocks, or null if the tags are not properly nested.
+     */
+    public static List<String> splitBlocks(String htmlString) {
+        List<String> blocks = new ArrayList<>();
+        Deque<String> openTags = new ArrayDeque<>();
+        int blockStart = 0;
+        int i = htmlString.indexOf('<');
+        while (i >= 0) {
+            int end = htmlString.indexOf('>', i);
+            if (end < 0)
+                return null;
+
+            boolean endTag = i + 1 < end && htmlString.charAt(i + 1) == '/';
+            boolean selfClosing = htmlString.charAt(end - 1) == '/';
+            String name = tagName(htmlString, endTag ? i + 2 : i + 1, end);
+            if (name.isEmpty())
+                return null;
+
+            if (endTag) {
+                // The parser would fix up a stray or misnested end tag across
+                // blocks, so let the whole document be cleaned at once.
+                if (openTags.isEmpty() || !openTags.pop().equals(name))
+                    return null;
+                if (openTags.isEmpty()) {
+                    blocks.add(htmlString.substring(blockStart, end + 1));
+                    blockStart = end + 1;
+                }
+            } else if (!selfClosing && !isVoidTag(name)) {
+                openTags.push(name);
+            }
+            i = htmlString.indexOf('<', end);
+        }
+        if (!openTags.isEmpty())
+            return null;
+
+        if (blockStart < htmlString.length())
+            blocks.add(htmlString.substring(blockStart));
+        return blocks;
+    }
+
+    private static String tagName(String htmlString, int start, int end) {
+        int nameEnd = start;
+        while (nameEnd < end && Character.isLetterOrDigit(htmlString.charAt(nameEnd)))
+            nameEnd++;
+        return htmlString.substring(start, nameEnd).toLowerCase(Locale.ROOT);
+    }
+
+    private static boolean isVoidTag(String name) {
+        switch (name) {
+            case "br":
+            case "hr":
+            case "img":
+            case "wbr":
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * @return hits, misses and evictions of the cache of clean html.
+     */
+    public static String getCacheStats() {
+        return cache.getStats();
+    }
+
+    /**
+     * Clean the html parsing the whole document with Jsoup. This handles any
+     * malformed html, but it is much slower than HtmlSanitizer.
+     * @param htmlString html to clean
+     * @return clean html
+     */
+    static String cleanHtmlDocument(String htmlString) {
         Document dirty = parseBodyFragment(htmlString, "");
         dirty.outputSettings().indentAmount(0).prettyPrint(false);
         Cleaner cleaner = new Cleaner(basicWhitelist());
@@ -0,0 +1,153 @@
+/*
+ * Nextcloud Quicknotes Android client application.
+ *
+ * @copyright Copyright (c) 2020 Matias De lellis <mati86dl@gmail.com>
+ *
+ * @author Matias De lellis <mati86dl@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package ar.com.delellis.quicknotes.activity.editor;
+
+import android.content.ContextWrapper;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.File;
+
+import ar.com.delellis.quicknotes.model.Note;
+
+import static org.junit.Assert.*;
+
+@RunWith(RobolectricTestRunner.class)
+public class DraftStoreTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private ContextWrapper context;
+    private DraftStore store;
+
+    @Before
+    public void setUp() {
+        context = new ContextWrapper(null) {
+            @Override
+            public File getFilesDir() {
+                return folder.getRoot();
+            }
+        };
+        store = new DraftStore(context, "alice@cloud.example.com");
+    }
+
+    @Test
+    public void save_isLoadedBeforeAndAfterWritten() throws Exception {
+        Note original = createNote("Title", "Content");
+        Note note = createNote("Title", "Edited content");
+        store.save("draft", note, original);
+        // The store keeps a copy, later edits do not reach it.
+        note.setContent("Edited again");
+
+        assertDraft(store.load("draft"), "Edited content", "Content");
+
+        DraftStore.awaitPendingWrites();
+        assertEquals(1, countDraftFiles());
+        assertDraft(store.load("draft"), "Edited content", "Content");
+    }
+
+    @Test
+    public void delete_hidesDraftBeforeRemoved() throws Exception {
+        store.save("draft", createNote("Title", "Content"), null);
+        DraftStore.awaitPendingWrites();
+
+        store.delete("draft");
+        assertNull(store.load("draft"));
+
+        DraftStore.awaitPendingWrites();
+        assertNull(store.load("draft"));
+        assertEquals(0, countDraftFiles());
+    }
+
+    @Test
+    public void save_afterDeleteIsKept() throws Exception {
+        store.save("draft", createNote("Title", "First"), null);
+        store.delete("draft");
+        store.save("draft", createNote("Title", "Second"), null);
+        assertDraft(store.load("draft"), "Second", null);
+
+        DraftStore.awaitPendingWrites();
+        assertDraft(store.load("draft"), "Second", null);
+    }
+
+    @Test
+    public void drafts_areScopedByAccount() throws Exception {
+        DraftStore other = new DraftStore(context, "alice@other.example.com/nextcloud");
+        store.save(DraftStore.getUnsavedName(1), createNote("Title", "Alice"), null);
+        assertNull(other.load(DraftStore.getUnsavedName(1)));
+
+        DraftStore.awaitPendingWrites();
+        assertNull(other.load(DraftStore.getUnsavedName(1)));
+        assertDraft(new DraftStore(context, "alice@cloud.example.com").load(DraftStore.getUnsavedName(1)), "Alice", null);
+    }
+
+    @Test
+    public void deleteStateDrafts_keepsUnsavedDrafts() throws Exception {
+        store.save(DraftStore.getStateName(1), createNote("Title", "State"), null);
+        store.save(DraftStore.getUnsavedName(1), createNote("Title", "Unsaved"), null);
+        DraftStore.awaitPendingWrites();
+        store.save(DraftStore.getStateName(2), createNote("Title", "Pending state"), null);
+
+        store.deleteStateDrafts();
+        assertNull(store.load(DraftStore.getStateName(2)));
+
+        DraftStore.awaitPendingWrites();
+        assertNull(store.load(DraftStore.getStateName(1)));
+        assertNull(store.load(DraftStore.getStateName(2)));
+        assertDraft(store.load(DraftStore.getUnsavedName(1)), "Unsaved", null);
+        assertEquals(1, countDraftFiles());
+    }
+
+    private int countDraftFiles() {
+        int count = 0;
+        File[] accounts = new File(folder.getRoot(), "drafts").listFiles();
+        for (File account: accounts != null ? accounts : new File[0]) {
+            String[] files = account.list();
+            count += files != null ? files.length : 0;
+        }
+        return count;
+    }
+
+    private static void assertDraft(DraftStore.Draft draft, String content, String originalContent) {
+        assertNotNull(draft);
+        assertEquals(content, draft.note.getContent());
+        if (originalContent == null) {
+            assertNull(draft.original);
+        } else {
+            assertEquals(originalContent, draft.original.getContent());
+        }
+    }
+
+    private static Note createNote(String title, String content) {
+        Note note = new Note();
+        note.setId(1);
+        note.setTitle(title);
+        note.setContent(content);
+        return note;
+    }
+}
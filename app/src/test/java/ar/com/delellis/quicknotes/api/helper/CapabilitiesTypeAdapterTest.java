@@ -0,0 +1,178 @@
+/*
+ * Nextcloud Quicknotes Android client application.
+ *
+ * @copyright Copyright (c) 2020 Matias De lellis <mati86dl@gmail.com>
+ *
+ * @author Matias De lellis <mati86dl@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package ar.com.delellis.quicknotes.api.helper;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+
+import ar.com.delellis.quicknotes.model.Capabilities;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * The streaming parser must read the same capabilities as the tree based
+ * deserializer it replaced, while allocating and taking less.
+ */
+public class CapabilitiesTypeAdapterTest {
+
+    private static final int BENCHMARK_PARSES = 200;
+
+    private final Gson gson = new GsonConfig().create();
+
+    @Test
+    public void read_matchesTreeDeserializer() {
+        String[] responses = {
+                buildResponse(120, 100, true),
+                buildResponse(0, 100, true),
+                buildResponse(10, 100, false),
+                buildResponse(10, 503, true),
+                "{\"ocs\": {\"data\": {\"version\": {\"string\": \"27.1.0\"}}, \"meta\": {\"statuscode\": 503}}}",
+                "{\"ocs\": {\"meta\": {\"statuscode\": 200}}}",
+                "{}",
+        };
+        for (String json: responses) {
+            Capabilities expected = parseTree(json);
+            Capabilities parsed = gson.fromJson(json, Capabilities.class);
+            assertEquals(json, expected.getNextcloudVersion(), parsed.getNextcloudVersion());
+            assertEquals(json, expected.getQuicknotesVersion(), parsed.getQuicknotesVersion());
+            assertEquals(json, expected.getQuicknotesApiVersion(), parsed.getQuicknotesApiVersion());
+            assertEquals(json, expected.isMaintenanceEnabled(), parsed.isMaintenanceEnabled());
+        }
+    }
+
+    @Test
+    public void read_isFasterAndAllocatesLessThanTree() {
+        String json = buildResponse(120, 100, true);
+
+        // Warm up both paths before measuring.
+        for (int i = 0; i < BENCHMARK_PARSES; i++) {
+            gson.fromJson(json, Capabilities.class);
+            parseTree(json);
+        }
+
+        com.sun.management.ThreadMXBean bean = getThreadMXBean();
+        long allocated = bean.getCurrentThreadAllocatedBytes();
+        long start = System.nanoTime();
+        for (int i = 0; i < BENCHMARK_PARSES; i++) {
+            gson.fromJson(json, Capabilities.class);
+        }
+        long streamTime = System.nanoTime() - start;
+        long streamAllocated = bean.getCurrentThreadAllocatedBytes() - allocated;
+
+        allocated = bean.getCurrentThreadAllocatedBytes();
+        start = System.nanoTime();
+        for (int i = 0; i < BENCHMARK_PARSES; i++) {
+            parseTree(json);
+        }
+        long treeTime = System.nanoTime() - start;
+        long treeAllocated = bean.getCurrentThreadAllocatedBytes() - allocated;
+
+        System.out.printf("Capabilities of %d KB: streaming %.2f ms and %d KB, tree %.2f ms and %d KB per parse%n",
+                json.length() / 1024,
+                streamTime / 1e6 / BENCHMARK_PARSES, streamAllocated / 1024 / BENCHMARK_PARSES,
+                treeTime / 1e6 / BENCHMARK_PARSES, treeAllocated / 1024 / BENCHMARK_PARSES);
+        assertTrue(streamAllocated * 2 < treeAllocated);
+        assertTrue(streamTime < treeTime);
+    }
+
+    private static com.sun.management.ThreadMXBean getThreadMXBean() {
+        assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(bean.isThreadAllocatedMemorySupported() && bean.isThreadAllocatedMemoryEnabled());
+        return bean;
+    }
+
+    /**
+     * The deserializer used before CapabilitiesTypeAdapter.
+     */
+    private static Capabilities parseTree(String json) {
+        Capabilities capabilities = new Capabilities();
+        JsonObject jsonCapabilities = JsonParser.parseString(json).getAsJsonObject();
+        if (jsonCapabilities.has("ocs")) {
+            JsonObject ocs = jsonCapabilities.getAsJsonObject("ocs");
+            if (ocs.has("meta")) {
+                int statuscode = ocs.getAsJsonObject("meta").get("statuscode").getAsInt();
+                capabilities.setMaintenanceEnabled(statuscode == 503);
+                if (capabilities.isMaintenanceEnabled()) {
+                    return capabilities;
+                }
+            }
+            if (ocs.has("data")) {
+                JsonObject data = ocs.getAsJsonObject("data");
+                if (data.has("version")) {
+                    JsonObject version = data.getAsJsonObject("version");
+                    capabilities.setNextcloudVersion(version.get("string").getAsString());
+                }
+                if (data.has("capabilities")) {
+                    JsonObject caps = data.getAsJsonObject("capabilities");
+                    if (caps.has("quicknotes")) {
+                        JsonObject quicknotes = caps.getAsJsonObject("quicknotes");
+                        if (quicknotes.has("version")) {
+                            capabilities.setQuicknotesVersion(quicknotes.get("version").getAsString());
+                        }
+                        if (quicknotes.has("api_version")) {
+                            capabilities.setQuicknotesApiVersion(quicknotes.get("api_version").getAsString());
+                        }
+                    }
+                }
+            }
+        }
+        return capabilities;
+    }
+
+    /**
+     * A capabilities response like the ones of servers with many apps.
+     * @param apps number of other apps, listed before quicknotes.
+     */
+    private static String buildResponse(int apps, int statusCode, boolean withQuicknotes) {
+        Random random = new Random(apps);
+        StringBuilder json = new StringBuilder();
+        json.append("{\"ocs\": {\"meta\": {\"status\": \"ok\", \"statuscode\": ").append(statusCode)
+                .append(", \"message\": \"OK\"}, \"data\": {\"version\": {\"major\": 27, \"minor\": 1,")
+                .append(" \"micro\": 3, \"string\": \"27.1.3\", \"edition\": \"\", \"extendedSupport\": false},")
+                .append(" \"capabilities\": {");
+        for (int app = 0; app < apps; app++) {
+            json.append("\"app").append(app).append("\": {\"enabled\": true, \"version\": \"1.").append(app)
+                    .append(".0\", \"features\": [");
+            int features = 10 + random.nextInt(20);
+            for (int feature = 0; feature < features; feature++) {
+                if (feature > 0) json.append(", ");
+                json.append("{\"name\": \"feature").append(feature).append("\", \"limit\": ")
+                        .append(random.nextInt(100000)).append(", \"nested\": {\"flag\": ")
+                        .append(random.nextBoolean()).append(", \"ratio\": ").append(random.nextDouble()).append("}}");
+            }
+            json.append("]}, ");
+        }
+        if (withQuicknotes) {
+            json.append("\"quicknotes\": {\"version\": \"0.9.2\", \"api_version\": \"1.1\"}, ");
+        }
+        json.append("\"core\": {\"pollinterval\": 60}}}}}");
+        return json.toString();
+    }
+}
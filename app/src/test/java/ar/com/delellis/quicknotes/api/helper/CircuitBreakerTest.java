@@ -0,0 +1,124 @@
+/*
+ * Nextcloud Quicknotes Android client application.
+ *
+ * @copyright Copyright (c) 2020 Matias De lellis <mati86dl@gmail.com>
+ *
+ * @author Matias De lellis <mati86dl@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package ar.com.delellis.quicknotes.api.helper;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+public class CircuitBreakerTest {
+
+    private final AtomicLong now = new AtomicLong(1000);
+    private final CircuitBreaker breaker = new CircuitBreaker(now::get);
+
+    @Test
+    public void failures_openAfterThreshold() {
+        for (int i = 0; i < 4; i++) {
+            assertTrue(breaker.allowRequest());
+            breaker.onFailure(false);
+        }
+        assertFalse(breaker.isOpen());
+
+        breaker.onFailure(false);
+        assertTrue(breaker.isOpen());
+        assertFalse(breaker.allowRequest());
+    }
+
+    @Test
+    public void success_clearsFailures() {
+        for (int i = 0; i < 4; i++) {
+            breaker.onFailure(false);
+        }
+        breaker.onSuccess();
+        breaker.onFailure(false);
+
+        assertFalse(breaker.isOpen());
+    }
+
+    @Test
+    public void unavailable_opensAtOnce() {
+        breaker.onFailure(true);
+
+        assertTrue(breaker.isOpen());
+        assertFalse(breaker.allowRequest());
+    }
+
+    @Test
+    public void open_letsOneProbeThroughAfterDelay() {
+        breaker.onFailure(true);
+
+        now.addAndGet(29999);
+        assertFalse(breaker.allowRequest());
+
+        now.addAndGet(1);
+        assertTrue(breaker.allowRequest());
+        // Others wait for the probe.
+        assertFalse(breaker.allowRequest());
+
+        breaker.onSuccess();
+        assertFalse(breaker.isOpen());
+        assertTrue(breaker.allowRequest());
+    }
+
+    @Test
+    public void failedProbe_doublesDelay() {
+        breaker.onFailure(true);
+        now.addAndGet(30000);
+        assertTrue(breaker.allowRequest());
+
+        breaker.onFailure(false);
+        now.addAndGet(59999);
+        assertFalse(breaker.allowRequest());
+        now.addAndGet(1);
+        assertTrue(breaker.allowRequest());
+    }
+
+    @Test
+    public void abortedProbe_letsNextRequestProbe() {
+        breaker.onFailure(true);
+        now.addAndGet(30000);
+        assertTrue(breaker.allowRequest());
+
+        breaker.onAborted();
+        assertTrue(breaker.isOpen());
+        assertTrue(breaker.allowRequest());
+    }
+
+    @Test
+    public void reset_closesAndForgetsDelay() {
+        breaker.onFailure(true);
+        now.addAndGet(30000);
+        breaker.allowRequest();
+        breaker.onFailure(false);
+
+        breaker.reset();
+        assertFalse(breaker.isOpen());
+        assertTrue(breaker.allowRequest());
+
+        // Back to the first delay.
+        breaker.onFailure(true);
+        now.addAndGet(30000);
+        assertTrue(breaker.allowRequest());
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * Nextcloud Quicknotes Android client application.
+ *
+ * @copyright Copyright (c) 2020 Matias De lellis <mati86dl@gmail.com>
+ *
+ * @author Matias De lellis <mati86dl@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package ar.com.delellis.quicknotes.api.helper;
+
+import androidx.annotation.NonNull;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.ResponseBody;
+import okio.Timeout;
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+
+/**
+ * Call that never reaches the network. It answers right away when it has an
+ * Answer, otherwise it waits for the test to complete it. Clones share the
+ * answer and the list of sent calls, as retries of the same request.
+ */
+class FakeCall<T> implements Call<T> {
+
+    interface Answer<T> {
+        /**
+         * @param attempt number of the call sent, starting at 1.
+         */
+        Response<T> answer(int attempt) throws IOException;
+    }
+
+    private final Answer<T> answer;
+    private final List<FakeCall<T>> sent;
+
+    private volatile Callback<T> callback;
+    private volatile boolean executed = false;
+    private volatile boolean canceled = false;
+
+    FakeCall() {
+        this(null);
+    }
+
+    FakeCall(Answer<T> answer) {
+        this(answer, new CopyOnWriteArrayList<>());
+    }
+
+    private FakeCall(Answer<T> answer, List<FakeCall<T>> sent) {
+        this.answer = answer;
+        this.sent = sent;
+    }
+
+    static <T> Response<T> error(int code) {
+        return Response.error(code, ResponseBody.create(MediaType.get("text/plain"), ""));
+    }
+
+    /**
+     * @return this call and its clones, in the order they were sent.
+     */
+    List<FakeCall<T>> getSent() {
+        return sent;
+    }
+
+    boolean isSent() {
+        return executed;
+    }
+
+    void respond(Response<T> response) {
+        callback.onResponse(this, response);
+    }
+
+    void fail(Throwable t) {
+        callback.onFailure(this, t);
+    }
+
+    @Override
+    public Response<T> execute() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void enqueue(@NonNull Callback<T> callback) {
+        if (executed)
+            throw new IllegalStateException("Already executed");
+        executed = true;
+        this.callback = callback;
+        sent.add(this);
+        if (answer == null)
+            return;
+
+        try {
+            respond(answer.answer(sent.size()));
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    @Override
+    public boolean isExecuted() {
+        return executed;
+    }
+
+    @Override
+    public void cancel() {
+        canceled = true;
+    }
+
+    @Override
+    public boolean isCanceled() {
+        return canceled;
+    }
+
+    @NonNull
+    @Override
+    public Call<T> clone() {
+        return new FakeCall<>(answer, sent);
+    }
+
+    @NonNull
+    @Override
+    public Request request() {
+        return new Request.Builder().url("http://localhost/").build();
+    }
+
+    @NonNull
+    @Override
+    public Timeout timeout() {
+        return Timeout.NONE;
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * Nextcloud Quicknotes Android client application.
+ *
+ * @copyright Copyright (c) 2020 Matias De lellis <mati86dl@gmail.com>
+ *
+ * @author Matias De lellis <mati86dl@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package ar.com.delellis.quicknotes.api.helper;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+import com.google.gson.reflect.TypeToken;
+
+import org.junit.Test;
+
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import ar.com.delellis.quicknotes.model.Attachment;
+import ar.com.delellis.quicknotes.model.Note;
+import ar.com.delellis.quicknotes.model.Share;
+import ar.com.delellis.quicknotes.model.Tag;
+
+import static org.junit.Assert.*;
+
+/**
+ * The streaming adapters must read and write the same json as Gson does by
+ * reflection over the @SerializedName fields of the models.
+ */
+public class ModelTypeAdaptersTest {
+
+    private static final int BENCHMARK_NOTES = 10000;
+    private static final Type NOTE_LIST_TYPE = new TypeToken<List<Note>>() {}.getType();
+
+    private final Gson reflectiveGson = new Gson();
+    private final Gson gson = new GsonConfig().create();
+
+    @Test
+    public void write_matchesReflectiveGson() {
+        for (Note note: buildNotes(50)) {
+            assertEquals(tree(reflectiveGson.toJson(note)), tree(gson.toJson(note)));
+        }
+    }
+
+    @Test
+    public void read_matchesReflectiveGson() {
+        for (Note note: buildNotes(50)) {
+            String json = reflectiveGson.toJson(note);
+            Note parsed = gson.fromJson(json, Note.class);
+            assertEquals(tree(json), tree(reflectiveGson.toJson(parsed)));
+        }
+    }
+
+    @Test
+    public void read_acceptsSameValuesAsReflectiveGson() {
+        String json = "{\"id\": \"7\", \"title\": 12, \"content\": true, \"isPinned\": \"true\", \"color\": null," +
+                " \"unknown\": {\"nested\": [1, 2]}, \"tags\": [{\"id\": 1, \"name\": \"work\", \"extra\": 1}]," +
+                " \"sharedWith\": [], \"attachments\": [{\"id\": 3, \"file_id\": 42}]}";
+        Note expected = reflectiveGson.fromJson(json, Note.class);
+        Note parsed = gson.fromJson(json, Note.class);
+        assertEquals(reflectiveGson.toJson(expected), reflectiveGson.toJson(parsed));
+    }
+
+    @Test
+    public void readList_fasterThanReflectiveGson() {
+        String json = reflectiveGson.toJson(buildNotes(BENCHMARK_NOTES));
+
+        // Warm up both paths.
+        for (int i = 0; i < 3; i++) {
+            reflectiveGson.fromJson(json, NOTE_LIST_TYPE);
+            gson.fromJson(json, NOTE_LIST_TYPE);
+        }
+
+        long reflectiveNanos = Long.MAX_VALUE;
+        long streamingNanos = Long.MAX_VALUE;
+        for (int i = 0; i < 5; i++) {
+            long start = System.nanoTime();
+            List<Note> reflectiveNotes = reflectiveGson.fromJson(json, NOTE_LIST_TYPE);
+            reflectiveNanos = Math.min(reflectiveNanos, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            List<Note> notes = gson.fromJson(json, NOTE_LIST_TYPE);
+            streamingNanos = Math.min(streamingNanos, System.nanoTime() - start);
+
+            assertEquals(BENCHMARK_NOTES, reflectiveNotes.size());
+            assertEquals(BENCHMARK_NOTES, notes.size());
+        }
+
+        System.out.printf("Parse of %d notes: reflective %.1fms, streaming %.1fms%n",
+                BENCHMARK_NOTES, reflectiveNanos / 1e6, streamingNanos / 1e6);
+        // Generous margin, just to catch a regression on the streaming adapters.
+        assertTrue(streamingNanos < reflectiveNanos * 2);
+    }
+
+    private static JsonElement tree(String json) {
+        return JsonParser.parseString(json);
+    }
+
+    private static List<Note> buildNotes(int count) {
+        String[] colors = {"#F7EB96", "#88B7E3", "#C1ECB0", "#BFA6E9", "#DAF188"};
+        List<Note> notes = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Note note = new Note();
+            note.setId(i + 1);
+            note.setTitle(i % 17 == 0 ? null : "Note <b>" + i + "</b> \"quoted\" ñ");
+            note.setContent("<p>Content of the note " + i + "</p><ul><li>item</li></ul>");
+            note.setIsPinned(i % 3 == 0);
+            note.setColor(colors[i % colors.length]);
+            note.setTimestamp(1600000000 + i);
+
+            Tag tag = new Tag();
+            tag.setId(i % 5);
+            tag.setName("tag" + (i % 5));
+            note.setTags(i % 7 == 0 ? null : new ArrayList<>(Arrays.asList(tag)));
+
+            if (i % 4 == 0) {
+                Share share = new Share();
+                share.setId(i);
+                share.setUserId("user");
+                share.setNoteId(Integer.toString(i + 1));
+                share.setSharedUser("friend");
+                share.setSharedGroup(i % 8 == 0 ? null : "group");
+                note.setShareWith(new ArrayList<>(Arrays.asList(share)));
+                note.setShareBy(new ArrayList<>());
+            }
+
+            if (i % 6 == 0) {
+                Attachment attachment = new Attachment();
+                attachment.setId(i);
+                attachment.setNoteId(Integer.toString(i + 1));
+                attachment.setFileId(Integer.toString(1000 + i));
+                attachment.setCreatedAt("2020-10-10 10:10:10");
+                attachment.setPreviewUrl("/core/preview?fileId=" + (1000 + i));
+                attachment.setRedirectUrl("/f/" + (1000 + i));
+                attachment.setDeepLinkUrl("nc://file/" + (1000 + i));
+                note.setAttachments(new ArrayList<>(Arrays.asList(attachment)));
+            }
+            notes.add(note);
+        }
+        return notes;
+    }
+}
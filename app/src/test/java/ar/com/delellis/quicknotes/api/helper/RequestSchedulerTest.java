@@ -0,0 +1,124 @@
+/*
+ * Nextcloud Quicknotes Android client application.
+ *
+ * @copyright Copyright (c) 2020 Matias De lellis <mati86dl@gmail.com>
+ *
+ * @author Matias De lellis <mati86dl@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package ar.com.delellis.quicknotes.api.helper;
+
+import androidx.annotation.NonNull;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import ar.com.delellis.quicknotes.api.helper.RequestScheduler.Priority;
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+
+import static org.junit.Assert.*;
+
+public class RequestSchedulerTest {
+
+    private final RequestScheduler scheduler = new RequestScheduler();
+    private final List<String> results = new ArrayList<>();
+
+    @Test
+    public void priorityLimit_queuesExtraCallsInOrder() {
+        FakeCall<String> first = enqueue(Priority.INTERACTIVE, "first");
+        FakeCall<String> second = enqueue(Priority.INTERACTIVE, "second");
+        FakeCall<String> third = enqueue(Priority.INTERACTIVE, "third");
+        FakeCall<String> fourth = enqueue(Priority.INTERACTIVE, "fourth");
+
+        assertTrue(first.isSent());
+        assertTrue(second.isSent());
+        assertFalse(third.isSent());
+        assertFalse(fourth.isSent());
+
+        second.respond(Response.success("ok"));
+        assertTrue(third.isSent());
+        assertFalse(fourth.isSent());
+    }
+
+    @Test
+    public void interactive_notBlockedByVisibleCalls() {
+        List<FakeCall<String>> visible = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            visible.add(enqueue(Priority.VISIBLE, "visible" + i));
+        }
+        FakeCall<String> save = enqueue(Priority.INTERACTIVE, "save");
+
+        assertTrue(save.isSent());
+        // Nothing was canceled to make room.
+        for (FakeCall<String> call: visible) {
+            assertFalse(call.isCanceled());
+        }
+        assertEquals(2, countSent(visible));
+
+        save.respond(Response.success("ok"));
+        assertEquals(2, countSent(visible));
+        visible.get(0).respond(Response.success("ok"));
+        assertEquals(3, countSent(visible));
+    }
+
+    @Test
+    public void everyOutcome_deliveredOnceAndFreesSlot() {
+        FakeCall<String> ok = enqueue(Priority.VISIBLE, "ok");
+        FakeCall<String> failed = enqueue(Priority.VISIBLE, "failed");
+        FakeCall<String> queued = enqueue(Priority.VISIBLE, "queued");
+
+        failed.fail(new IOException("reset"));
+        assertTrue(queued.isSent());
+        ok.respond(FakeCall.error(404));
+        queued.respond(Response.success("note"));
+
+        List<String> expected = new ArrayList<>();
+        expected.add("failed: reset");
+        expected.add("ok: 404");
+        expected.add("queued: 200");
+        assertEquals(expected, results);
+    }
+
+    private FakeCall<String> enqueue(Priority priority, String name) {
+        FakeCall<String> call = new FakeCall<>();
+        scheduler.enqueue(call, priority, new Callback<String>() {
+            @Override
+            public void onResponse(@NonNull Call<String> call, @NonNull Response<String> response) {
+                results.add(name + ": " + response.code());
+            }
+
+            @Override
+            public void onFailure(@NonNull Call<String> call, @NonNull Throwable t) {
+                results.add(name + ": " + t.getMessage());
+            }
+        });
+        return call;
+    }
+
+    private static int countSent(List<FakeCall<String>> calls) {
+        int count = 0;
+        for (FakeCall<String> call: calls) {
+            if (call.isSent())
+                count++;
+        }
+        return count;
+    }
+}
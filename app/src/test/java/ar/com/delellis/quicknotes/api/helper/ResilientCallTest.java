@@ -0,0 +1,155 @@
+/*
+ * Nextcloud Quicknotes Android client application.
+ *
+ * @copyright Copyright (c) 2020 Matias De lellis <mati86dl@gmail.com>
+ *
+ * @author Matias De lellis <mati86dl@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package ar.com.delellis.quicknotes.api.helper;
+
+import androidx.annotation.NonNull;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+
+import static org.junit.Assert.*;
+
+@RunWith(RobolectricTestRunner.class)
+public class ResilientCallTest {
+
+    // Retries right away, so the tests don't wait for the backoff.
+    private static final RetryPolicy FAST_IDEMPOTENT = new RetryPolicy(3, 1, 1, true);
+    private static final RetryPolicy FAST_NOT_IDEMPOTENT = new RetryPolicy(3, 1, 1, false);
+
+    private final CircuitBreaker circuitBreaker = CircuitBreaker.getInstance();
+
+    @Before
+    public void setUp() {
+        circuitBreaker.reset();
+    }
+
+    @After
+    public void tearDown() {
+        circuitBreaker.reset();
+    }
+
+    @Test
+    public void unavailable_deliversResponseAfterRetries() throws InterruptedException {
+        FakeCall<String> call = new FakeCall<>(attempt -> FakeCall.error(503));
+
+        Result<String> result = enqueue(call, FAST_IDEMPOTENT);
+
+        // The caller gets the real 503, not the breaker opened by the first one.
+        assertNull(result.failure);
+        assertEquals(503, result.response.code());
+        assertEquals(3, call.getSent().size());
+
+        // Only then the breaker opens for the next requests.
+        assertTrue(circuitBreaker.isOpen());
+        Result<String> next = enqueue(new FakeCall<>(attempt -> Response.success("note")), FAST_IDEMPOTENT);
+        assertTrue(next.failure instanceof CircuitBreaker.OpenException);
+    }
+
+    @Test
+    public void unavailable_retriesUntilSuccess() throws InterruptedException {
+        FakeCall<String> call = new FakeCall<>(attempt -> attempt < 3 ? FakeCall.error(503) : Response.success("note"));
+
+        Result<String> result = enqueue(call, FAST_NOT_IDEMPOTENT);
+
+        assertEquals("note", result.response.body());
+        assertEquals(3, call.getSent().size());
+        assertFalse(circuitBreaker.isOpen());
+    }
+
+    @Test
+    public void networkFailure_retriedOnlyWhenIdempotent() throws InterruptedException {
+        FakeCall<String> post = new FakeCall<>(attempt -> {
+            throw new IOException("reset");
+        });
+        Result<String> result = enqueue(post, FAST_NOT_IDEMPOTENT);
+        assertTrue(result.failure instanceof IOException);
+        assertEquals(1, post.getSent().size());
+
+        FakeCall<String> put = new FakeCall<>(attempt -> {
+            if (attempt == 1)
+                throw new IOException("reset");
+            return Response.success("note");
+        });
+        result = enqueue(put, FAST_IDEMPOTENT);
+        assertEquals("note", result.response.body());
+        assertEquals(2, put.getSent().size());
+    }
+
+    @Test
+    public void clientError_notRetried() throws InterruptedException {
+        FakeCall<String> call = new FakeCall<>(attempt -> FakeCall.error(404));
+
+        Result<String> result = enqueue(call, FAST_IDEMPOTENT);
+
+        assertEquals(404, result.response.code());
+        assertEquals(1, call.getSent().size());
+        assertFalse(circuitBreaker.isOpen());
+    }
+
+    private static <T> Result<T> enqueue(Call<T> call, RetryPolicy policy) throws InterruptedException {
+        Result<T> result = new Result<>();
+        ResilientCall.enqueue(call, policy, RequestScheduler.Priority.INTERACTIVE, result);
+        assertTrue(result.await());
+        return result;
+    }
+
+    private static class Result<T> implements Callback<T> {
+        private final CountDownLatch done = new CountDownLatch(1);
+        private final AtomicReference<Response<T>> responseRef = new AtomicReference<>();
+        private final AtomicReference<Throwable> failureRef = new AtomicReference<>();
+
+        Response<T> response;
+        Throwable failure;
+
+        @Override
+        public void onResponse(@NonNull Call<T> call, @NonNull Response<T> response) {
+            responseRef.set(response);
+            done.countDown();
+        }
+
+        @Override
+        public void onFailure(@NonNull Call<T> call, @NonNull Throwable t) {
+            failureRef.set(t);
+            done.countDown();
+        }
+
+        boolean await() throws InterruptedException {
+            if (!done.await(5, TimeUnit.SECONDS))
+                return false;
+            response = responseRef.get();
+            failure = failureRef.get();
+            return true;
+        }
+    }
+}
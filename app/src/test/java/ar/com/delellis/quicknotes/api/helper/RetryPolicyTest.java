@@ -0,0 +1,73 @@
+/*
+ * Nextcloud Quicknotes Android client application.
+ *
+ * @copyright Copyright (c) 2020 Matias De lellis <mati86dl@gmail.com>
+ *
+ * @author Matias De lellis <mati86dl@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package ar.com.delellis.quicknotes.api.helper;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class RetryPolicyTest {
+
+    @Test
+    public void canRetry_onlyTransientCodes() {
+        for (RetryPolicy policy: new RetryPolicy[] {RetryPolicy.IDEMPOTENT, RetryPolicy.NOT_IDEMPOTENT}) {
+            assertTrue(policy.canRetry(429));
+            assertTrue(policy.canRetry(503));
+            assertFalse(policy.canRetry(400));
+            assertFalse(policy.canRetry(404));
+            assertFalse(policy.canRetry(409));
+        }
+
+        // The server may have processed these.
+        for (int code: new int[] {408, 500, 502, 504}) {
+            assertTrue(RetryPolicy.IDEMPOTENT.canRetry(code));
+            assertFalse(RetryPolicy.NOT_IDEMPOTENT.canRetry(code));
+        }
+    }
+
+    @Test
+    public void getDelay_fullJitterUpToBackoff() {
+        RetryPolicy policy = new RetryPolicy(8, 100, 1600, true);
+        for (int attempt = 1; attempt <= 8; attempt++) {
+            long backoff = Math.min(1600, 100L << (attempt - 1));
+            long min = Long.MAX_VALUE;
+            long max = 0;
+            for (int i = 0; i < 2000; i++) {
+                long delay = policy.getDelay(attempt);
+                assertTrue(delay >= 0 && delay <= backoff);
+                min = Math.min(min, delay);
+                max = Math.max(max, delay);
+            }
+            // Spread over the whole range, not only its upper half.
+            assertTrue("attempt " + attempt + " min " + min, min < backoff / 4);
+            assertTrue("attempt " + attempt + " max " + max, max > backoff * 3 / 4);
+        }
+    }
+
+    @Test
+    public void getDelay_cappedOnManyAttempts() {
+        RetryPolicy policy = new RetryPolicy(100, 500, 8000, true);
+        for (int attempt: new int[] {10, 17, 64, 100}) {
+            assertTrue(policy.getDelay(attempt) <= 8000);
+        }
+    }
+}
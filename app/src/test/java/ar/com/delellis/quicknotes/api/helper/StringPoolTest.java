@@ -0,0 +1,181 @@
+/*
+ * Nextcloud Quicknotes Android client application.
+ *
+ * @copyright Copyright (c) 2020 Matias De lellis <mati86dl@gmail.com>
+ *
+ * @author Matias De lellis <mati86dl@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package ar.com.delellis.quicknotes.api.helper;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import ar.com.delellis.quicknotes.model.Note;
+import ar.com.delellis.quicknotes.model.Share;
+import ar.com.delellis.quicknotes.model.Tag;
+
+import static org.junit.Assert.*;
+
+public class StringPoolTest {
+
+    @Test
+    public void intern_returnsCanonicalInstance() {
+        StringPool pool = new StringPool();
+        String first = new String("#F7EB96");
+        String second = new String("#F7EB96");
+
+        assertSame(first, pool.intern(first));
+        assertSame(first, pool.intern(second));
+        assertNotSame(first, pool.intern(new String("#88B7E3")));
+    }
+
+    @Test
+    public void intern_skipsNullAndLongValues() {
+        StringPool pool = new StringPool();
+        assertNull(pool.intern(null));
+
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < 200; i++) builder.append('x');
+        String first = builder.toString();
+        String second = builder.toString();
+
+        assertSame(first, pool.intern(first));
+        assertSame(second, pool.intern(second));
+    }
+
+    @Test
+    public void intern_forgetsLeastRecentlyUsed() {
+        StringPool pool = new StringPool();
+        String kept = new String("kept");
+        String evicted = new String("evicted");
+        pool.intern(kept);
+        pool.intern(evicted);
+        for (int i = 0; i < 4096; i++) {
+            // Keep using one value while filling the pool.
+            pool.intern(new String("kept"));
+            pool.intern("value" + i);
+        }
+
+        assertSame(kept, pool.intern(new String("kept")));
+        assertNotSame(evicted, pool.intern(new String("evicted")));
+    }
+
+    @Test
+    public void forAccount_isolatesAccounts() {
+        StringPool first = StringPool.forAccount("alice@cloud.example.com");
+        assertSame(first, StringPool.forAccount("alice@cloud.example.com"));
+
+        String tag = new String("work");
+        first.intern(tag);
+
+        StringPool second = StringPool.forAccount("bob@cloud.example.com");
+        assertNotSame(first, second);
+        // Nothing of the previous account is kept.
+        String otherTag = new String("work");
+        assertSame(otherTag, second.intern(otherTag));
+
+        // Going back to an account starts a new pool.
+        assertNotSame(first, StringPool.forAccount("alice@cloud.example.com"));
+    }
+
+    @Test
+    public void parsedNotes_shareRepeatedStrings() {
+        String json = buildNotesJson(5000);
+        List<Note> plainNotes = new Gson().fromJson(json, new TypeToken<List<Note>>() {}.getType());
+        List<Note> pooledNotes = new GsonConfig(new StringPool()).create().fromJson(json, new TypeToken<List<Note>>() {}.getType());
+
+        Set<String> plainStrings = collectPooledValues(plainNotes);
+        Set<String> pooledStrings = collectPooledValues(pooledNotes);
+        long plainBytes = getRetainedBytes(plainStrings);
+        long pooledBytes = getRetainedBytes(pooledStrings);
+
+        System.out.printf("Colors, tags and users of %d notes: %d strings of %d KB, pooled %d strings of %d KB%n",
+                plainNotes.size(), plainStrings.size(), plainBytes / 1024, pooledStrings.size(), pooledBytes / 1024);
+        // Just one instance of each distinct value is left.
+        assertEquals(8 + 20 + 10 + 4, pooledStrings.size());
+        assertTrue(pooledBytes * 100 < plainBytes);
+    }
+
+    /**
+     * @return distinct instances of the pooled values of the notes.
+     */
+    private static Set<String> collectPooledValues(List<Note> notes) {
+        Set<String> strings = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Note note: notes) {
+            strings.add(note.getColor());
+            for (Tag tag: note.getTags()) {
+                strings.add(tag.getName());
+            }
+            for (Share share: note.getShareWith()) {
+                strings.add(share.getUserId());
+                strings.add(share.getSharedUser());
+                strings.add(share.getSharedGroup());
+            }
+        }
+        return strings;
+    }
+
+    /**
+     * Heap taken by the strings with compact Latin-1 strings: a 24 bytes String
+     * header plus the byte array, with its 16 bytes header, aligned to 8 bytes.
+     */
+    private static long getRetainedBytes(Set<String> strings) {
+        long bytes = 0;
+        for (String value: strings) {
+            bytes += 24 + ((16 + value.length() + 7) / 8) * 8;
+        }
+        return bytes;
+    }
+
+    private static String buildNotesJson(int count) {
+        String[] colors = {"#F7EB96", "#88B7E3", "#C1ECB0", "#BFA6E9", "#DAF188", "#FF96AC", "#FCF0D8", "#FFFFFF"};
+        String[] groups = {"family", "work", "friends", "admin"};
+        Random random = new Random(43);
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < count; i++) {
+            if (i > 0) json.append(',');
+            json.append("{\"id\":").append(i)
+                    .append(",\"title\":\"Note ").append(i)
+                    .append("\",\"content\":\"Content\",\"isPinned\":false,\"timestamp\":0,\"color\":\"")
+                    .append(colors[random.nextInt(colors.length)]).append("\",\"tags\":[");
+            int tags = 1 + random.nextInt(3);
+            for (int t = 0; t < tags; t++) {
+                int tag = random.nextInt(20);
+                if (t > 0) json.append(',');
+                json.append("{\"id\":").append(tag).append(",\"name\":\"tag").append(tag).append("\"}");
+            }
+            json.append("],\"sharedWith\":[");
+            int shares = random.nextInt(2);
+            for (int s = 0; s < shares; s++) {
+                int user = random.nextInt(10);
+                json.append("{\"id\":").append(i).append(",\"user_id\":\"user").append(user)
+                        .append("\",\"note_id\":\"").append(i).append("\",\"shared_user\":\"user").append(user)
+                        .append("\",\"shared_group\":\"").append(groups[random.nextInt(groups.length)]).append("\"}");
+            }
+            json.append("],\"sharedBy\":[],\"attachments\":[]}");
+        }
+        return json.append(']').toString();
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * Nextcloud Quicknotes Android client application.
+ *
+ * @copyright Copyright (c) 2020 Matias De lellis <mati86dl@gmail.com>
+ *
+ * @author Matias De lellis <mati86dl@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package ar.com.delellis.quicknotes.model;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class NoteRepositoryTest {
+
+    private static final String ACCOUNT = "alice@cloud.example.com";
+
+    private final NoteRepository repository = NoteRepository.getInstance();
+
+    @Before
+    public void setUp() {
+        repository.setAccount(null);
+        repository.setAccount(ACCOUNT);
+    }
+
+    @Test
+    public void setNotes_keepsChangesInFlight() {
+        long fetchVersion = repository.getVersion();
+        Note edited = createNote(1, "Edited");
+        repository.putLocalNote(edited);
+        repository.removeLocalNote(2);
+
+        // A download started before the changes arrives.
+        assertTrue(repository.setNotes(Arrays.asList(createNote(1, "Old"), createNote(2, "Removed")), ACCOUNT, fetchVersion));
+        assertSame(edited, repository.getNote(1));
+        assertNull(repository.getNote(2));
+
+        // So the server response still finds the note it expects.
+        Note confirmed = createNote(1, "Edited");
+        assertTrue(repository.confirmNote(edited, confirmed));
+        assertSame(confirmed, repository.getNote(1));
+    }
+
+    @Test
+    public void setNotes_keepsConfirmedChangesUntilDownloadedAgain() {
+        long staleVersion = repository.getVersion();
+        Note edited = createNote(1, "Edited");
+        repository.putLocalNote(edited);
+        Note confirmed = createNote(1, "Edited");
+        repository.confirmNote(edited, confirmed);
+        Note created = createNote(3, "Created");
+        repository.putNote(created);
+        repository.removeLocalNote(2);
+        repository.confirmRemoval(2);
+
+        List<Note> stale = Arrays.asList(createNote(1, "Old"), createNote(2, "Removed"));
+        repository.setNotes(stale, ACCOUNT, staleVersion);
+        assertSame(confirmed, repository.getNote(1));
+        assertNull(repository.getNote(2));
+        assertSame(created, repository.getNote(3));
+
+        // A download started after the confirmations is trusted as it is.
+        long freshVersion = repository.getVersion();
+        Note fresh = createNote(1, "Edited on other device");
+        repository.setNotes(Collections.singletonList(fresh), ACCOUNT, freshVersion);
+        assertSame(fresh, repository.getNote(1));
+        assertNull(repository.getNote(3));
+        assertEquals(1, repository.getNotes().size());
+    }
+
+    @Test
+    public void revertNote_restoresPreviousAndForgetsChange() {
+        Note previous = createNote(1, "Previous");
+        long version = repository.getVersion();
+        repository.setNotes(Collections.singletonList(previous), ACCOUNT, version);
+
+        Note edited = createNote(1, "Edited");
+        assertSame(previous, repository.putLocalNote(edited));
+        assertTrue(repository.revertNote(edited, previous));
+        assertSame(previous, repository.getNote(1));
+
+        Note downloaded = createNote(1, "Downloaded");
+        repository.setNotes(Collections.singletonList(downloaded), ACCOUNT, version);
+        assertSame(downloaded, repository.getNote(1));
+    }
+
+    @Test
+    public void revertNote_keepsNewerChange() {
+        Note first = createNote(1, "First");
+        Note second = createNote(1, "Second");
+        repository.putLocalNote(first);
+        repository.putLocalNote(second);
+
+        assertFalse(repository.revertNote(first, null));
+        assertFalse(repository.confirmNote(first, createNote(1, "First")));
+        assertSame(second, repository.getNote(1));
+    }
+
+    @Test
+    public void revertRemoval_restoresNote() {
+        Note note = createNote(1, "Note");
+        long version = repository.getVersion();
+        repository.setNotes(Collections.singletonList(note), ACCOUNT, version);
+
+        assertSame(note, repository.removeLocalNote(1));
+        repository.revertRemoval(1, note);
+        assertSame(note, repository.getNote(1));
+
+        repository.setNotes(Collections.singletonList(createNote(1, "Downloaded")), ACCOUNT, version);
+        assertEquals("Downloaded", repository.getNote(1).getTitle());
+    }
+
+    @Test
+    public void setAccount_forgetsNotesOfPreviousAccount() {
+        repository.setNotes(Collections.singletonList(createNote(1, "Note")), ACCOUNT, repository.getVersion());
+        repository.putLocalNote(createNote(2, "Edited"));
+
+        repository.setAccount(ACCOUNT);
+        assertEquals(2, repository.getNotes().size());
+
+        repository.setAccount("bob@cloud.example.com");
+        assertTrue(repository.getNotes().isEmpty());
+        // A download of the previous account finished late.
+        assertFalse(repository.setNotes(Collections.singletonList(createNote(1, "Note")), ACCOUNT, repository.getVersion()));
+        assertTrue(repository.getNotes().isEmpty());
+    }
+
+    private static Note createNote(int id, String title) {
+        Note note = new Note();
+        note.setId(id);
+        note.setTitle(title);
+        note.setContent("");
+        return note;
+    }
+}
@@ -0,0 +1,163 @@
+/*
+ * Nextcloud Quicknotes Android client application.
+ *
+ * @copyright Copyright (c) 2020 Matias De lellis <mati86dl@gmail.com>
+ *
+ * @author Matias De lellis <mati86dl@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package ar.com.delellis.quicknotes.model;
+
+import com.google.gson.Gson;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class NoteTest {
+
+    private static final int BENCHMARK_CLONES = 10000;
+
+    @Test
+    public void clone_isEqual() {
+        Note note = buildNote();
+        Note copy = note.clone();
+
+        assertNotSame(note, copy);
+        assertEquals(note, copy);
+        assertEquals(note.hashCode(), copy.hashCode());
+        assertEquals(note.getId(), copy.getId());
+        assertEquals(note.getTimestamp(), copy.getTimestamp());
+    }
+
+    @Test
+    public void clone_tagsAreIndependent() {
+        Note note = buildNote();
+        Note copy = note.clone();
+
+        assertNotSame(note.getTags(), copy.getTags());
+        assertNotSame(note.getTags().get(0), copy.getTags().get(0));
+
+        copy.getTags().get(0).setName("changed");
+        copy.getTags().add(new Tag());
+        assertEquals("work", note.getTags().get(0).getName());
+        assertEquals(2, note.getTags().size());
+
+        note.getTags().remove(1);
+        assertEquals(3, copy.getTags().size());
+    }
+
+    @Test
+    public void clone_attachmentsAreIndependent() {
+        Note note = buildNote();
+        Note copy = note.clone();
+
+        assertNotSame(note.getAttachtments(), copy.getAttachtments());
+        assertNotSame(note.getAttachtments().get(0), copy.getAttachtments().get(0));
+
+        copy.getAttachtments().get(0).setPreviewUrl("/changed");
+        copy.getAttachtments().clear();
+        assertEquals(1, note.getAttachtments().size());
+        assertEquals("/core/preview?fileId=42", note.getAttachtments().get(0).getPreviewUrl());
+    }
+
+    @Test
+    public void clone_sharesAreIndependent() {
+        Note note = buildNote();
+        Note copy = note.clone();
+
+        copy.getShareWith().get(0).setSharedUser("other");
+        copy.getShareBy().add(new Share());
+        assertEquals("friend", note.getShareWith().get(0).getSharedUser());
+        assertTrue(note.getShareBy().isEmpty());
+    }
+
+    @Test
+    public void clone_keepsNullLists() {
+        Note note = new Note();
+        note.setTitle("title");
+        Note copy = note.clone();
+
+        assertNull(copy.getTags());
+        assertNull(copy.getAttachtments());
+        assertNull(copy.getShareWith());
+        assertEquals(note, copy);
+    }
+
+    @Test
+    public void clone_fasterThanGsonRoundTrip() {
+        Gson gson = new Gson();
+        Note note = buildNote();
+
+        // Warm up both paths.
+        for (int i = 0; i < 1000; i++) {
+            note.clone();
+            gson.fromJson(gson.toJson(note), Note.class);
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < BENCHMARK_CLONES; i++) {
+            note.clone();
+        }
+        long cloneNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < BENCHMARK_CLONES; i++) {
+            gson.fromJson(gson.toJson(note), Note.class);
+        }
+        long gsonNanos = System.nanoTime() - start;
+
+        System.out.printf("%d copies: clone %.1fms, gson round trip %.1fms%n",
+                BENCHMARK_CLONES, cloneNanos / 1e6, gsonNanos / 1e6);
+        assertTrue(cloneNanos < gsonNanos);
+    }
+
+    private static Note buildNote() {
+        Note note = new Note();
+        note.setId(42);
+        note.setTitle("Shopping list");
+        note.setContent("<p>Some <b>bold</b> content</p><ul><li>milk</li></ul>");
+        note.setIsPinned(true);
+        note.setColor("#F7EB96");
+        note.setTimestamp(1600000000);
+
+        Tag work = new Tag();
+        work.setId(1);
+        work.setName("work");
+        Tag home = new Tag();
+        home.setId(2);
+        home.setName("home");
+        note.setTags(new ArrayList<>(Arrays.asList(work, home)));
+
+        Attachment attachment = new Attachment();
+        attachment.setId(3);
+        attachment.setNoteId("42");
+        attachment.setFileId("42");
+        attachment.setPreviewUrl("/core/preview?fileId=42");
+        note.setAttachments(new ArrayList<>(Arrays.asList(attachment)));
+
+        Share share = new Share();
+        share.setId(4);
+        share.setUserId("me");
+        share.setSharedUser("friend");
+        note.setShareWith(new ArrayList<>(Arrays.asList(share)));
+        note.setShareBy(new ArrayList<>());
+        return note;
+    }
+}
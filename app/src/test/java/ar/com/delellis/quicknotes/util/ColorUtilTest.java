@@ -0,0 +1,123 @@
+/*
+ * Nextcloud Quicknotes Android client application.
+ *
+ * @copyright Copyright (c) 2020 Matias De lellis <mati86dl@gmail.com>
+ *
+ * @author Matias De lellis <mati86dl@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package ar.com.delellis.quicknotes.util;
+
+import android.graphics.Color;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+@RunWith(RobolectricTestRunner.class)
+public class ColorUtilTest {
+
+    private static final int ITERATIONS = 10000;
+
+    @Test
+    public void parseColor_matchesColorParseColor() {
+        String[] colors = {"#F7EB96", "#8088B7E3", "#000000", "#ffffff", "red"};
+        for (String color: colors) {
+            assertEquals(Color.parseColor(color), ColorUtil.parseColor(color));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void parseColor_rejectsUnknownColors() {
+        ColorUtil.parseColor("#F7EB9");
+    }
+
+    @Test
+    public void hexColors_matchStringFormat() {
+        int[] colors = {0x00000000, 0xFFFFFFFF, 0xFFF7EB96, 0x8088B7E3, 0x01020304, 0xABCDEF12};
+        for (int color: colors) {
+            assertEquals(String.format("#%06X", 0xFFFFFF & color), ColorUtil.getRGBColorFromInt(color));
+            assertEquals(String.format("#%08X", color), ColorUtil.getRGBAColorFromInt(color));
+        }
+    }
+
+    @Test
+    public void hexColors_allocateLessThanStringFormat() {
+        com.sun.management.ThreadMXBean bean = getThreadMXBean();
+
+        // Warm up both paths, so the class loading is not measured.
+        formatColors();
+        formatColorsWithStringFormat();
+
+        long before = bean.getCurrentThreadAllocatedBytes();
+        formatColors();
+        long allocated = bean.getCurrentThreadAllocatedBytes() - before;
+
+        before = bean.getCurrentThreadAllocatedBytes();
+        formatColorsWithStringFormat();
+        long allocatedFormat = bean.getCurrentThreadAllocatedBytes() - before;
+
+        // Just the char array and the resulting string.
+        assertTrue("Allocated " + allocated / ITERATIONS + " bytes per color", allocated / ITERATIONS <= 128);
+        assertTrue(allocated * 4 < allocatedFormat);
+    }
+
+    @Test
+    public void parseColor_allocatesNothingOnceCached() {
+        com.sun.management.ThreadMXBean bean = getThreadMXBean();
+        String[] colors = {"#F7EB96", "#88B7E3", "#C1ECB0", "#BFA6E9"};
+        int[] expected = {0xFFF7EB96, 0xFF88B7E3, 0xFFC1ECB0, 0xFFBFA6E9};
+        for (int i = 0; i < colors.length; i++) {
+            assertEquals(expected[i], ColorUtil.parseColor(colors[i]));
+        }
+
+        long before = bean.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < ITERATIONS; i++) {
+            ColorUtil.parseColor(colors[i % colors.length]);
+        }
+        long allocated = bean.getCurrentThreadAllocatedBytes() - before;
+
+        assertTrue("Allocated " + allocated + " bytes", allocated < 1024);
+    }
+
+    private static com.sun.management.ThreadMXBean getThreadMXBean() {
+        assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(bean.isThreadAllocatedMemorySupported() && bean.isThreadAllocatedMemoryEnabled());
+        return bean;
+    }
+
+    private static int formatColors() {
+        int length = 0;
+        for (int i = 0; i < ITERATIONS; i++) {
+            length += ColorUtil.getRGBColorFromInt(i * 0x10101).length();
+        }
+        return length;
+    }
+
+    private static int formatColorsWithStringFormat() {
+        int length = 0;
+        for (int i = 0; i < ITERATIONS; i++) {
+            length += String.format("#%06X", 0xFFFFFF & (i * 0x10101)).length();
+        }
+        return length;
+    }
+}
@@ -0,0 +1,43 @@
+/*
+ * Nextcloud Quicknotes Android client application.
+ *
+ * @copyright Copyright (c) 2020 Matias De lellis <mati86dl@gmail.com>
+ *
+ * @author Matias De lellis <mati86dl@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package ar.com.delellis.quicknotes.util;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class HashUtilTest {
+
+    @Test
+    public void fnv1a_matchesReferenceValues() {
+        // Test vectors of the FNV reference implementation.
+        assertEquals(0xcbf29ce484222325L, HashUtil.fnv1a(""));
+        assertEquals(0xaf63dc4c8601ec8cL, HashUtil.fnv1a("a"));
+        assertEquals(0x85944171f73967e8L, HashUtil.fnv1a("foobar"));
+    }
+
+    @Test
+    public void fnv1a_continuesHash() {
+        assertEquals(HashUtil.fnv1a("foobar"), HashUtil.fnv1a(HashUtil.fnv1a("foo"), "bar"));
+        assertEquals(HashUtil.fnv1a("a"), HashUtil.fnv1a(HashUtil.FNV_OFFSET_BASIS, 'a'));
+    }
+}
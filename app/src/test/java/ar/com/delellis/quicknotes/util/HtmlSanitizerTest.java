@@ -0,0 +1,139 @@
+/*
+ * Nextcloud Quicknotes Android client application.
+ *
+ * @copyright Copyright (c) 2020 Matias De lellis <mati86dl@gmail.com>
+ *
+ * @author Matias De lellis <mati86dl@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package ar.com.delellis.quicknotes.util;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Compare the single pass sanitizer with the Jsoup Cleaner it replaces.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class HtmlSanitizerTest {
+
+    private static final String[] WELL_FORMED = {
+            "",
+            "Plain text",
+            "<p>Paragraph</p>",
+            "<p>First</p><p>Second</p>",
+            "<b>bold</b> <strong>strong</strong> <i>italic</i> <u>underline</u> <s>s</s> <strike>strike</strike>",
+            "<ul><li>one</li><li>two</li></ul>",
+            "<ol><li>one <b>bold</b></li><li>two<br>lines</li></ol>",
+            "<blockquote>quote</blockquote><pre>code</pre>",
+            "Line<br>break<br/>and<br />more",
+            "<p>Entities &amp; &lt; &gt; &quot; &apos; &nbsp; &#65; &#x42;</p>",
+            "Lone & ampersand and > sign",
+            "<a href=\"https://nextcloud.com/\">link</a>",
+            "<a href='http://example.com/path'>single quotes</a>",
+            "<a>no href</a>",
+            "<span>dropped</span> span",
+            "<P>Upper case</P>",
+            "<p class=\"x\" style=\"color: red\">attributes</p>",
+            "Unicode: áéí ñ 漢字 😀",
+            "<b>unclosed bold",
+            "Tabs\tand\nnew lines",
+    };
+
+    private static final String[] MALFORMED = {
+            "<b><i>misnested</b></i>",
+            "<p><p>nested paragraphs</p></p>",
+            "<li>orphan</li>",
+            "<ul><li>one<li>two</ul>",
+            "<p>paragraph <ul><li>list in paragraph</li></ul></p>",
+            "<script>alert(1)</script>text",
+            "<img src=x onerror=alert(1)>",
+            "<a href=\"javascript:alert(1)\">js</a>",
+            "<a href=\"https://exa mple.com/\">space</a>",
+            "<a href=\"https://example.com/a&b\">amp</a>",
+            "<a><a>nested links</a></a>",
+            "</p>stray end tag",
+            "<div>div</div>",
+            "<!-- comment -->text",
+            "<pre>\nnew line after pre</pre>",
+            "a < b and c > d",
+            "&unknown; &#0; &#x80; &#xD800; &#99999999;",
+            "Control \u0001 char",
+            "Broken \uD800 surrogate",
+            "<p",
+            "<a href=\"https://example.com/>unterminated",
+            "<br></br>",
+            "<b/>",
+            "<table><tr><td>cell</td></tr></table>",
+    };
+
+    private static final String[] TOKENS = {
+            "<p>", "</p>", "<b>", "</b>", "<strong>", "</strong>", "<i>", "</i>", "<u>", "</u>",
+            "<s>", "</s>", "<strike>", "</strike>", "<ul>", "</ul>", "<ol>", "</ol>", "<li>", "</li>",
+            "<blockquote>", "</blockquote>", "<pre>", "</pre>", "<br>", "<br/>", "<span>", "</span>",
+            "<a href=\"https://example.com/\">", "<a href=\"mailto:me@example.com\">", "</a>",
+            "<div>", "</div>", "<em>", "</em>", "<P class=\"c\">", "</P>",
+            "&amp;", "&lt;", "&gt;", "&nbsp;", "&quot;", "&#233;", "&#x1F600;", "&bogus;", "&",
+            "text", "more text", " ", "\n", "\t", "<", ">", "\"", "'", "é", "😀",
+    };
+
+    @Test
+    public void wellFormed_matchesCleaner() {
+        for (String html: WELL_FORMED) {
+            String sanitized = HtmlSanitizer.sanitize(html);
+            assertNotNull(html, sanitized);
+            assertEquals(html, HtmlUtil.cleanHtmlDocument(html), sanitized);
+        }
+    }
+
+    @Test
+    public void malformed_matchesCleanerOrGivesUp() {
+        for (String html: MALFORMED) {
+            assertSameAsCleaner(html);
+        }
+    }
+
+    @Test
+    public void randomHtml_matchesCleanerOrGivesUp() {
+        Random random = new Random(42);
+        int sanitized = 0;
+        for (int i = 0; i < 20000; i++) {
+            StringBuilder html = new StringBuilder();
+            int tokens = random.nextInt(12);
+            for (int j = 0; j < tokens; j++) {
+                html.append(TOKENS[random.nextInt(TOKENS.length)]);
+            }
+            if (assertSameAsCleaner(html.toString()))
+                sanitized++;
+        }
+        // Make sure the fast path is actually exercised.
+        assertTrue("Only " + sanitized + " sanitized on a single pass", sanitized > 1000);
+    }
+
+    private static boolean assertSameAsCleaner(String html) {
+        String sanitized = HtmlSanitizer.sanitize(html);
+        if (sanitized == null)
+            return false;
+
+        assertEquals(html, HtmlUtil.cleanHtmlDocument(html), sanitized);
+        return true;
+    }
+}
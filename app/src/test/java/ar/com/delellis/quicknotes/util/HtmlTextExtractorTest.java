@@ -0,0 +1,138 @@
+/*
+ * Nextcloud Quicknotes Android client application.
+ *
+ * @copyright Copyright (c) 2020 Matias De lellis <mati86dl@gmail.com>
+ *
+ * @author Matias De lellis <mati86dl@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package ar.com.delellis.quicknotes.util;
+
+import org.jsoup.Jsoup;
+import org.jsoup.safety.Safelist;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Compare the text extracted on a single scan with the text of the
+ * document parsed by Jsoup.
+ */
+public class HtmlTextExtractorTest {
+
+    private static final String[] CONTENTS = {
+            "",
+            "Plain text",
+            "  Leading and   trailing   spaces  ",
+            "<p>First paragraph</p><p>Second paragraph</p>",
+            "Some <b>bold</b>, <i>italic</i> and <u>underlined</u> words",
+            "Line<br>break<br/>and<br />more",
+            "<ul><li>one</li><li>two</li></ul>",
+            "<blockquote>quote</blockquote><pre>code</pre>after",
+            "<div>block</div><div>other</div>",
+            "Entities &amp; &lt;tags&gt; &quot;quoted&quot; &apos;single&apos; &#65;&#x42; &eacute;",
+            "Unknown &bogus; entity and lone & ampersand",
+            "<a href=\"https://example.com/\">link</a> text",
+            "<a title=\"a > b\">quoted greater than</a>",
+            "<script>var a = '<p>not text</p>';</script>after script",
+            "<style>p { color: red; }</style>after style",
+            "if a < b and c > d",
+            "x<3 love >_<",
+            "1 <2 and 3< 4",
+            "<!-- c > d -->e",
+            "before<!-- comment -->after",
+            "<!---->empty comment",
+            "<!DOCTYPE html>doctype",
+            "<?xml version=\"1.0\"?>processing instruction",
+            "</>empty end tag",
+            "Unclosed comment <!-- never ends",
+            "Unclosed tag <b",
+            "Trailing less than <",
+            "a &nbsp; b",
+            "&nbsp;padded&nbsp;&nbsp;words&#160; &#xA0;",
+            "Literal\u00A0\u00A0non breaking \u00A0 spaces",
+            "Numeric &#32;&#10; spaces",
+            "<p>&nbsp;</p><p>after an empty paragraph</p>",
+            "Unicode: áéí ñ 漢字 😀",
+    };
+
+    @Test
+    public void extract_matchesJsoupText() {
+        for (String html: CONTENTS) {
+            assertEquals(html, jsoupText(html), HtmlTextExtractor.extract(html));
+        }
+    }
+
+    @Test
+    public void extract_isFasterThanJsoupClean() {
+        String[] notes = randomNotes(2000);
+
+        // Warm up both paths before measuring.
+        for (int i = 0; i < 3; i++) {
+            extractAll(notes);
+            cleanAll(notes);
+        }
+
+        long start = System.nanoTime();
+        extractAll(notes);
+        long extractTime = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        cleanAll(notes);
+        long cleanTime = System.nanoTime() - start;
+
+        System.out.printf("Plain text of %d notes: extractor %.1f ms, Jsoup.clean %.1f ms%n",
+                notes.length, extractTime / 1e6, cleanTime / 1e6);
+        assertTrue(extractTime * 2 < cleanTime);
+    }
+
+    private static int extractAll(String[] notes) {
+        int length = 0;
+        for (String note: notes) {
+            length += HtmlTextExtractor.extract(note).length();
+        }
+        return length;
+    }
+
+    private static int cleanAll(String[] notes) {
+        // What HtmlUtil.cleanString() does for titles and search.
+        int length = 0;
+        for (String note: notes) {
+            length += Jsoup.clean(note.trim(), Safelist.none()).length();
+        }
+        return length;
+    }
+
+    private static String[] randomNotes(int count) {
+        Random random = new Random(42);
+        String[] notes = new String[count];
+        for (int i = 0; i < count; i++) {
+            StringBuilder note = new StringBuilder();
+            int blocks = 1 + random.nextInt(20);
+            for (int b = 0; b < blocks; b++) {
+                note.append(CONTENTS[random.nextInt(CONTENTS.length)]);
+            }
+            notes[i] = note.toString();
+        }
+        return notes;
+    }
+
+    private static String jsoupText(String html) {
+        return Jsoup.parse(html).text();
+    }
+}
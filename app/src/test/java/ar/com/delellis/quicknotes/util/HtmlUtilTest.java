@@ -0,0 +1,67 @@
+/*
+ * Nextcloud Quicknotes Android client application.
+ *
+ * @copyright Copyright (c) 2020 Matias De lellis <mati86dl@gmail.com>
+ *
+ * @author Matias De lellis <mati86dl@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package ar.com.delellis.quicknotes.util;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+@RunWith(RobolectricTestRunner.class)
+public class HtmlUtilTest {
+
+    private static final String[] CONTENTS = {
+            "<p>First</p><p>Second</p>",
+            "<p>a<br>b</p>tail",
+            "<P>upper</p><ul><li>one</li><li>two</li></ul>",
+            "<ul></i><pre></blockquote>",
+            "<b><i>misnested</b></i><p>after</p>",
+            "<p>unclosed<p>paragraphs",
+            "<blockquote><p>quote</p></blockquote><pre>code</pre>",
+    };
+
+    @Test
+    public void splitBlocks_splitsTopLevelElements() {
+        assertEquals(Arrays.asList("<p>First</p>", "<p>Second</p>"), HtmlUtil.splitBlocks("<p>First</p><p>Second</p>"));
+        assertEquals(Arrays.asList("<p>a<br>b</p>", "tail"), HtmlUtil.splitBlocks("<p>a<br>b</p>tail"));
+        assertEquals(Arrays.asList("<P>x</p>", "<hr/>"), HtmlUtil.splitBlocks("<P>x</p><hr/>"));
+    }
+
+    @Test
+    public void splitBlocks_rejectsMismatchedEndTags() {
+        assertNull(HtmlUtil.splitBlocks("<ul></i><pre></blockquote>"));
+        assertNull(HtmlUtil.splitBlocks("<b><i>misnested</b></i>"));
+        assertNull(HtmlUtil.splitBlocks("</p>stray"));
+        assertNull(HtmlUtil.splitBlocks("<p>unclosed"));
+        assertNull(HtmlUtil.splitBlocks("<!-- comment -->"));
+    }
+
+    @Test
+    public void cleanHtmlByBlocks_matchesCleanHtml() {
+        for (String html: CONTENTS) {
+            assertEquals(html, HtmlUtil.cleanHtmlDocument(html), HtmlUtil.cleanHtmlByBlocks(html));
+        }
+    }
+}